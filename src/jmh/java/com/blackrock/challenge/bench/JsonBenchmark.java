@@ -0,0 +1,97 @@
+package com.blackrock.challenge.bench;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.dto.FilterResponse;
+import com.blackrock.challenge.dto.ReturnsResponse;
+import com.blackrock.challenge.engine.SavingsPipeline;
+import com.blackrock.challenge.service.PipelineMetrics;
+import com.blackrock.challenge.service.ReturnsService;
+import com.blackrock.challenge.service.TaxProperties;
+import com.blackrock.challenge.service.TaxService;
+import com.blackrock.challenge.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson binding cost of the filter/returns request and the filter and returns
+ * responses, using ObjectMappers configured like the ones Spring Boot gives the
+ * controllers. {@code format} switches between JSON and the Smile and CBOR
+ * encodings; the encoded sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class JsonBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int n;
+
+    @Param({ "10" })
+    public int k;
+
+    @Param({ "42" })
+    public long seed;
+
+    @Param({ "json", "smile", "cbor" })
+    public String format;
+
+    private ObjectMapper mapper;
+
+    private byte[] filterRequestBytes;
+    private FilterRequest filterRequest;
+    private FilterResponse filterResponse;
+    private ReturnsResponse returnsResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        switch (format) {
+            case "smile" -> builder.factory(new SmileFactory());
+            case "cbor" -> builder.factory(new CBORFactory());
+            default -> { }
+        }
+        mapper = builder.build();
+
+        FilterRequest request = new WorkloadGenerator(seed).filterRequest(n, 10, 10, k, 0.01, 0.05);
+        filterRequestBytes = mapper.writeValueAsBytes(request);
+        filterRequest = mapper.readValue(filterRequestBytes, FilterRequest.class);
+        PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        filterResponse = new TransactionService(metrics).filter(request);
+        ReturnsService returnsService = new ReturnsService(new TaxService(new TaxProperties()), metrics,
+                SavingsPipeline.DEFAULT_PARALLEL_THRESHOLD, 0.08, 0.16, 0.015, 1_000_000, 100_000);
+        returnsResponse = returnsService.calculateNPS(request);
+        System.out.printf("%n%s bytes: filter request %d, filter response %d, returns response %d%n", format,
+                filterRequestBytes.length, mapper.writeValueAsBytes(filterResponse).length,
+                mapper.writeValueAsBytes(returnsResponse).length);
+    }
+
+    @Benchmark
+    public FilterRequest readFilterRequest() throws IOException {
+        return mapper.readValue(filterRequestBytes, FilterRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeFilterRequest() throws IOException {
+        return mapper.writeValueAsBytes(filterRequest);
+    }
+
+    @Benchmark
+    public byte[] writeFilterResponse() throws IOException {
+        return mapper.writeValueAsBytes(filterResponse);
+    }
+
+    @Benchmark
+    public byte[] writeReturnsResponse() throws IOException {
+        return mapper.writeValueAsBytes(returnsResponse);
+    }
+}
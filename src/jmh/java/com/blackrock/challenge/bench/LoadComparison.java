@@ -0,0 +1,142 @@
+package com.blackrock.challenge.bench;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load driver for comparing the server's platform-thread and
+ * virtual-thread modes under many concurrent, slow clients.
+ *
+ * Each client (a virtual thread here) opens a connection, trickles a filter
+ * request body over {@code --trickle-ms} as a slow mobile client would, reads the
+ * response and starts over until the run ends. The report gives throughput and
+ * latency percentiles (connect to last response byte) after the warmup.
+ *
+ * mvn -Pjmh test-compile exec:exec@load -Dload.args="--concurrency 1000 --trickle-ms 500"
+ */
+public final class LoadComparison {
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(option(args, "--url",
+                "http://localhost:5477/blackrock/challenge/v1/transactions:filter"));
+        int concurrency = Integer.parseInt(option(args, "--concurrency", "1000"));
+        int seconds = Integer.parseInt(option(args, "--seconds", "30"));
+        int warmupSeconds = Integer.parseInt(option(args, "--warmup-seconds", "10"));
+        int trickleMillis = Integer.parseInt(option(args, "--trickle-ms", "500"));
+        int rows = Integer.parseInt(option(args, "--rows", "50"));
+
+        FilterRequest request = new WorkloadGenerator(42).filterRequest(rows, 5, 5, 5, 0.01, 0.05);
+        byte[] body = new ObjectMapper().writeValueAsBytes(request);
+        byte[] head = ("POST " + uri.getRawPath() + " HTTP/1.1\r\n"
+                + "Host: " + uri.getHost() + ":" + uri.getPort() + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        Queue<long[]> perClient = new ConcurrentLinkedQueue<>();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    long[] measured = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < end) {
+                        long start = System.nanoTime();
+                        boolean ok = exchange(uri, head, body, trickleMillis);
+                        long finished = System.nanoTime();
+                        if (start < warmupEnd || finished > end) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == measured.length) {
+                            measured = Arrays.copyOf(measured, count * 2);
+                        }
+                        measured[count++] = finished - start;
+                    }
+                    perClient.add(Arrays.copyOf(measured, count));
+                });
+            }
+        }
+
+        long[] latencies = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("clients=%d trickle=%dms rows=%d measured=%ds%n", concurrency, trickleMillis, rows, seconds);
+        System.out.printf("completed=%d errors=%d throughput=%.1f req/s%n",
+                latencies.length, errors.get(), latencies.length / (double) seconds);
+        if (latencies.length > 0) {
+            System.out.printf("latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.90),
+                    percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * One request on a fresh connection; the body is written in ten slices spread
+     * over {@code trickleMillis}. Returns true on an HTTP 200.
+     */
+    private static boolean exchange(URI uri, byte[] head, byte[] body, int trickleMillis) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(uri.getHost(), uri.getPort()), 10_000);
+            socket.setSoTimeout(60_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(head);
+            out.flush();
+            int slices = 10;
+            for (int i = 0; i < slices; i++) {
+                int from = body.length * i / slices;
+                int to = body.length * (i + 1) / slices;
+                out.write(body, from, to - from);
+                out.flush();
+                if (trickleMillis > 0) {
+                    Thread.sleep(trickleMillis / slices);
+                }
+            }
+
+            InputStream in = socket.getInputStream();
+            byte[] statusLine = new byte[12];
+            int read = in.readNBytes(statusLine, 0, statusLine.length);
+            in.transferTo(OutputStream.nullOutputStream());
+            return read == statusLine.length
+                    && new String(statusLine, StandardCharsets.US_ASCII).endsWith(" 200");
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
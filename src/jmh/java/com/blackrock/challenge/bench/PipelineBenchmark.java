@@ -0,0 +1,117 @@
+package com.blackrock.challenge.bench;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.dto.FilterResponse;
+import com.blackrock.challenge.dto.ReturnsResponse;
+import com.blackrock.challenge.dto.SweepRequest;
+import com.blackrock.challenge.dto.SweepResponse;
+import com.blackrock.challenge.dto.ValidatorRequest;
+import com.blackrock.challenge.dto.ValidatorResponse;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.SavingsPipeline;
+import com.blackrock.challenge.model.Expense;
+import com.blackrock.challenge.model.Transaction;
+import com.blackrock.challenge.service.PipelineMetrics;
+import com.blackrock.challenge.service.ReturnsService;
+import com.blackrock.challenge.service.TaxProperties;
+import com.blackrock.challenge.service.TaxService;
+import com.blackrock.challenge.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level throughput of parse, validate, filter, the two returns
+ * calculations and a 10×10×10 age × inflation × rate sweep on seeded synthetic
+ * batches (see {@link WorkloadGenerator}).
+ *
+ * Request objects are built once per trial, so only the service call is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class PipelineBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int n;
+
+    @Param({ "10" })
+    public int q;
+
+    @Param({ "10" })
+    public int p;
+
+    @Param({ "10" })
+    public int k;
+
+    @Param({ "0.01" })
+    public double duplicateRate;
+
+    @Param({ "0.05" })
+    public double invalidRate;
+
+    @Param({ "42" })
+    public long seed;
+
+    private final PipelineMetrics metrics = new PipelineMetrics(new SimpleMeterRegistry());
+    private final TransactionService transactionService = new TransactionService(metrics);
+    private final ReturnsService returnsService = new ReturnsService(new TaxService(new TaxProperties()), metrics,
+            SavingsPipeline.DEFAULT_PARALLEL_THRESHOLD, 0.08, 0.16, 0.015, 1_000_000, 100_000);
+
+    private List<Expense> expenses;
+    private ValidatorRequest validatorRequest;
+    private FilterRequest filterRequest;
+    private SweepRequest sweepRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        expenses = new WorkloadGenerator(seed).expenses(n, duplicateRate, invalidRate);
+        validatorRequest = new WorkloadGenerator(seed).validatorRequest(n, duplicateRate, invalidRate);
+        filterRequest = new WorkloadGenerator(seed).filterRequest(n, q, p, k, duplicateRate, invalidRate);
+
+        sweepRequest = new SweepRequest();
+        sweepRequest.setExpenses(filterRequest.getExpenses());
+        sweepRequest.setQ(filterRequest.getQ());
+        sweepRequest.setP(filterRequest.getP());
+        sweepRequest.setK(filterRequest.getK());
+        sweepRequest.setWage(filterRequest.getWage());
+        sweepRequest.setSweep(new SweepRequest.Grid(new SweepRequest.Axis(25.0, 52.0, 3.0),
+                new SweepRequest.Axis(3.0, 7.5, 0.5), new SweepRequest.Axis(5.0, 14.0, 1.0), null));
+    }
+
+    @Benchmark
+    public List<Transaction> parse() {
+        return transactionService.parseList(expenses);
+    }
+
+    @Benchmark
+    public ValidatorResponse validate() {
+        return transactionService.validate(validatorRequest);
+    }
+
+    @Benchmark
+    public FilterResponse filter() {
+        return transactionService.filter(filterRequest);
+    }
+
+    @Benchmark
+    public ReturnsResponse nps() {
+        return returnsService.calculateNPS(filterRequest);
+    }
+
+    @Benchmark
+    public ReturnsResponse index() {
+        return returnsService.calculateIndex(filterRequest);
+    }
+
+    @Benchmark
+    public SweepResponse sweep() {
+        return returnsService.sweep(sweepRequest, RuleSet.compile(sweepRequest.getQ(), sweepRequest.getP(),
+                sweepRequest.getK()), "nps");
+    }
+}
@@ -0,0 +1,53 @@
+package com.blackrock.challenge.bench;
+
+import com.blackrock.challenge.service.TaxProperties;
+import com.blackrock.challenge.service.TaxService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tax slab evaluation over a payroll-sized array of incomes, one call per income
+ * versus the bulk API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaxBenchmark {
+
+    @Param({ "1000000" })
+    public int n;
+
+    @Param({ "42" })
+    public long seed;
+
+    private final TaxService taxService = new TaxService(new TaxProperties());
+    private double[] incomes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(seed);
+        incomes = new double[n];
+        for (int i = 0; i < n; i++) {
+            incomes[i] = random.nextDouble(3_000_000);
+        }
+    }
+
+    @Benchmark
+    public double scalar() {
+        double total = 0;
+        for (double income : incomes) {
+            total += taxService.calculateTax(income);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double[] bulk() {
+        return taxService.calculateTax(incomes);
+    }
+}
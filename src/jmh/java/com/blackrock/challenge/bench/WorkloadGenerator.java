@@ -0,0 +1,122 @@
+package com.blackrock.challenge.bench;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.dto.ValidatorRequest;
+import com.blackrock.challenge.engine.SavingsPipeline;
+import com.blackrock.challenge.model.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded synthetic workloads for the benchmarks.
+ *
+ * The same seed and parameters always produce the same request, so numbers taken
+ * before and after a change are measured on identical input.
+ *
+ * - expenses fall at random seconds within one year, amounts in [0, 10000)
+ * - {@code duplicateRate}: share of rows that reuse the date of an earlier row
+ * - {@code invalidRate}: share of rows that fail validation (negative amount,
+ *   amount above the maximum, or a malformed date, in rotation)
+ * - q/p/k periods are random windows of 1 to 60 days within the same year
+ */
+public final class WorkloadGenerator {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long YEAR_START = LocalDateTime.of(2023, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final int YEAR_SECONDS = 365 * 86_400;
+    private static final int DAY_SECONDS = 86_400;
+
+    private final SplittableRandom random;
+
+    public WorkloadGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public List<Expense> expenses(int n, double duplicateRate, double invalidRate) {
+        List<Expense> expenses = new ArrayList<>(n);
+        String[] dates = new String[n];
+        for (int i = 0; i < n; i++) {
+            String date = i > 0 && random.nextDouble() < duplicateRate
+                    ? dates[random.nextInt(i)]
+                    : format(YEAR_START + random.nextInt(YEAR_SECONDS));
+            double amount = Math.round(random.nextDouble(10_000) * 100) / 100.0;
+
+            if (random.nextDouble() < invalidRate) {
+                switch (random.nextInt(3)) {
+                    case 0 -> amount = -amount - 1;
+                    case 1 -> amount = SavingsPipeline.MAX_AMOUNT + amount;
+                    default -> date = date.replace(' ', 'T');
+                }
+            }
+            dates[i] = date;
+            expenses.add(new Expense(date, amount));
+        }
+        return expenses;
+    }
+
+    public List<QPeriod> qPeriods(int count) {
+        List<QPeriod> periods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long[] window = window();
+            periods.add(new QPeriod(format(window[0]), format(window[1]), random.nextInt(200)));
+        }
+        return periods;
+    }
+
+    public List<PPeriod> pPeriods(int count) {
+        List<PPeriod> periods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long[] window = window();
+            periods.add(new PPeriod(format(window[0]), format(window[1]), random.nextInt(100)));
+        }
+        return periods;
+    }
+
+    public List<KPeriod> kPeriods(int count) {
+        List<KPeriod> periods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long[] window = window();
+            periods.add(new KPeriod(format(window[0]), format(window[1])));
+        }
+        return periods;
+    }
+
+    public FilterRequest filterRequest(int n, int q, int p, int k, double duplicateRate, double invalidRate) {
+        FilterRequest request = new FilterRequest();
+        request.setExpenses(expenses(n, duplicateRate, invalidRate));
+        request.setQ(qPeriods(q));
+        request.setP(pPeriods(p));
+        request.setK(kPeriods(k));
+        request.setAge(29);
+        request.setWage(50_000);
+        request.setInflation(5.5);
+        return request;
+    }
+
+    public ValidatorRequest validatorRequest(int n, double duplicateRate, double invalidRate) {
+        List<Transaction> transactions = new ArrayList<>(n);
+        for (Expense expense : expenses(n, duplicateRate, invalidRate)) {
+            double ceiling = SavingsPipeline.computeCeiling(expense.getAmount());
+            transactions.add(new Transaction(expense.getDate(), expense.getAmount(), ceiling,
+                    ceiling - expense.getAmount()));
+        }
+        ValidatorRequest request = new ValidatorRequest();
+        request.setTransactions(transactions);
+        request.setWage(50_000);
+        return request;
+    }
+
+    private long[] window() {
+        long start = YEAR_START + random.nextInt(YEAR_SECONDS);
+        return new long[] { start, start + DAY_SECONDS * (1L + random.nextInt(60)) - 1 };
+    }
+
+    private static String format(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC).format(FORMAT);
+    }
+}
@@ -0,0 +1,36 @@
+package com.blackrock.challenge.controller;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile and CBOR alongside JSON on every endpoint, picked by Content-Type for the
+ * request body and Accept for the response. JSON stays the default.
+ *
+ * Both converters are built from Spring Boot's Jackson2ObjectMapperBuilder, so they
+ * bind exactly like the JSON mapper (same modules, features and spring.jackson.*
+ * settings); only the wire format differs. Numbers travel as binary doubles instead
+ * of decimal text, which is where most of the JSON CPU on large payloads goes.
+ */
+@Configuration
+public class BinaryFormats {
+
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String CBOR = MediaType.APPLICATION_CBOR_VALUE;
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
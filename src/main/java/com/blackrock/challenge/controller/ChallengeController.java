@@ -1,18 +1,45 @@
 package com.blackrock.challenge.controller;
 
 import com.blackrock.challenge.dto.*;
+import com.blackrock.challenge.engine.RuleSet;
 import com.blackrock.challenge.model.*;
 import com.blackrock.challenge.service.*;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/blackrock/challenge/v1")
 public class ChallengeController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
+    private static final MediaType SMILE = MediaType.valueOf(BinaryFormats.SMILE);
+
     @Autowired
     private TransactionService transactionService;
 
@@ -22,6 +49,33 @@ public class ChallengeController {
     @Autowired
     private PerformanceService performanceService;
 
+    @Autowired
+    private RuleSetRegistry ruleSetRegistry;
+
+    @Autowired
+    private BatchReturnsService batchReturnsService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
     /**
      * POST /transactions:parse
      * Accepts a plain JSON array of expenses, returns enriched transactions.
@@ -31,6 +85,29 @@ public class ChallengeController {
         return ResponseEntity.ok(transactionService.parseList(expenses));
     }
 
+    /**
+     * POST /transactions:parse (Content-Type: application/x-ndjson)
+     * Streaming variant: one expense per line in, one enriched transaction per line out.
+     * Heap use stays constant regardless of input size.
+     */
+    @PostMapping(value = "/transactions:parse", consumes = NDJSON)
+    public void parseTransactionsStream(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        JsonFactory factory = objectMapper.getFactory();
+        JsonGenerator generator = factory.createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(null);
+        try (JsonParser parser = factory.createParser(body)) {
+            transactionService.parseStream(parser, generator);
+            generator.close();
+        } catch (JsonProcessingException e) {
+            // Let the exception handler answer with a JSON 400 if nothing was sent yet
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
     /**
      * POST /transactions:validator
      * Validates transactions against constraints.
@@ -46,8 +123,10 @@ public class ChallengeController {
      * Returns valid (with inKPeriod) and invalid (with message).
      */
     @PostMapping("/transactions:filter")
-    public ResponseEntity<FilterResponse> filterTransactions(@RequestBody FilterRequest request) {
-        return ResponseEntity.ok(transactionService.filter(request));
+    @ParseTimed(PipelineMetrics.FILTER)
+    public ResponseEntity<byte[]> filterTransactions(@RequestBody FilterRequest request, HttpServletRequest http)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        return cached("filter", request, http, ruleSet -> transactionService.filter(request, ruleSet));
     }
 
     /**
@@ -55,8 +134,10 @@ public class ChallengeController {
      * Calculates NPS returns with tax benefit, grouped by k-periods.
      */
     @PostMapping("/returns:nps")
-    public ResponseEntity<ReturnsResponse> calculateNPS(@RequestBody FilterRequest request) {
-        return ResponseEntity.ok(returnsService.calculateNPS(request));
+    @ParseTimed
+    public ResponseEntity<byte[]> calculateNPS(@RequestBody FilterRequest request, HttpServletRequest http)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        return cached("nps", request, http, ruleSet -> returnsService.calculateNPS(request, ruleSet));
     }
 
     /**
@@ -64,8 +145,291 @@ public class ChallengeController {
      * Calculates Index Fund returns (no tax benefit), grouped by k-periods.
      */
     @PostMapping("/returns:index")
-    public ResponseEntity<ReturnsResponse> calculateIndex(@RequestBody FilterRequest request) {
-        return ResponseEntity.ok(returnsService.calculateIndex(request));
+    @ParseTimed
+    public ResponseEntity<byte[]> calculateIndex(@RequestBody FilterRequest request, HttpServletRequest http)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        return cached("index", request, http, ruleSet -> returnsService.calculateIndex(request, ruleSet));
+    }
+
+    /**
+     * POST /returns:compare
+     * NPS and Index returns side by side, computed from one pass over the transactions.
+     */
+    @PostMapping("/returns:compare")
+    @ParseTimed
+    public ResponseEntity<byte[]> compareReturns(@RequestBody FilterRequest request, HttpServletRequest http)
+            throws IOException, HttpMediaTypeNotAcceptableException {
+        return cached("compare", request, http, ruleSet -> returnsService.compare(request, ruleSet));
+    }
+
+    /**
+     * POST /returns:simulate?instrument=nps|index&paths=10000&seed=42&percentiles=5,50,95
+     * Monte Carlo returns: corpus percentiles per k-period over simulated return and
+     * inflation paths. Reproducible for a given seed.
+     */
+    @PostMapping("/returns:simulate")
+    @ParseTimed
+    public ResponseEntity<SimulationResponse> simulateReturns(@RequestBody FilterRequest request,
+            @RequestParam(defaultValue = "nps") String instrument, @RequestParam(defaultValue = "10000") int paths,
+            @RequestParam(defaultValue = "42") long seed, @RequestParam(required = false) List<Double> percentiles) {
+        return ResponseEntity.ok(returnsService.simulate(request, ruleSetRegistry.resolve(request), instrument, paths,
+                seed, percentiles));
+    }
+
+    /**
+     * POST /returns:sweep?instrument=nps|index
+     * Returns over a grid of ages, inflation rates, return rates and wages, from one
+     * pass over the transactions.
+     */
+    @PostMapping("/returns:sweep")
+    @ParseTimed
+    public ResponseEntity<SweepResponse> sweepReturns(@RequestBody SweepRequest request,
+            @RequestParam(defaultValue = "nps") String instrument) {
+        return ResponseEntity.ok(returnsService.sweep(request, ruleSetRegistry.resolve(request), instrument));
+    }
+
+    /**
+     * POST /returns:batch?instrument=nps|index|compare
+     * Returns for many users in one call: an array of filter/returns requests in, an
+     * array of per-entry results out, in input order. Entries are bound and processed
+     * concurrently and streamed back as they complete in order. The body may be JSON,
+     * Smile or CBOR; the response uses the format named in Accept, else the body's.
+     */
+    @PostMapping(value = "/returns:batch",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, BinaryFormats.SMILE, BinaryFormats.CBOR })
+    public void calculateBatch(InputStream body, HttpServletRequest request, HttpServletResponse response,
+            @RequestParam(defaultValue = "nps") String instrument) throws IOException {
+        BatchReturnsService.Instrument selected = BatchReturnsService.Instrument.of(instrument);
+        MediaType requestType = MediaType.parseMediaType(request.getContentType());
+        MediaType responseType = responseType(request.getHeader("Accept"), requestType);
+        response.setContentType(responseType.toString());
+        JsonGenerator generator = factory(responseType).createGenerator(response.getOutputStream());
+        try (JsonParser parser = factory(requestType).createParser(body)) {
+            generator.writeStartArray();
+            batchReturnsService.calculateStream(parser, selected, result -> objectMapper.writeValue(generator, result));
+            generator.writeEndArray();
+            generator.close();
+        } catch (JsonProcessingException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * POST /returns:batch (Content-Type: application/x-ndjson)
+     * Streaming variant: one request per line in, one result per line out.
+     */
+    @PostMapping(value = "/returns:batch", consumes = NDJSON)
+    public void calculateBatchStream(InputStream body, HttpServletResponse response,
+            @RequestParam(defaultValue = "nps") String instrument) throws IOException {
+        BatchReturnsService.Instrument selected = BatchReturnsService.Instrument.of(instrument);
+        response.setContentType(NDJSON);
+        JsonFactory factory = objectMapper.getFactory();
+        JsonGenerator generator = factory.createGenerator(response.getOutputStream());
+        generator.setRootValueSeparator(null);
+        try (JsonParser parser = factory.createParser(body)) {
+            batchReturnsService.calculateStream(parser, selected, result -> {
+                objectMapper.writeValue(generator, result);
+                generator.writeRaw('\n');
+            });
+            generator.close();
+        } catch (JsonProcessingException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * POST /imports?operation=filter|nps|index|compare&ruleSetId=...&age=29&wage=50000&inflation=5.5
+     * Filter or returns over a CSV of date,amount rows: the body (Content-Type: text/csv),
+     * or with file=... a file in the configured import directory. The rule set comes from
+     * ruleSetId; the response is that of the matching JSON endpoint.
+     */
+    @PostMapping("/imports")
+    public ResponseEntity<Object> importCsv(InputStream body, @RequestParam(defaultValue = "nps") String operation,
+            @RequestParam(required = false) String file, @RequestParam(required = false) String ruleSetId,
+            @RequestParam(defaultValue = "0") int age, @RequestParam(defaultValue = "0") double wage,
+            @RequestParam(defaultValue = "0") double inflation) throws IOException {
+        FilterRequest params = new FilterRequest();
+        params.setRuleSetId(ruleSetId);
+        params.setAge(age);
+        params.setWage(wage);
+        params.setInflation(inflation);
+        return ResponseEntity.ok(file != null
+                ? csvImportService.importFile(file, params, operation)
+                : csvImportService.importUpload(body, params, operation));
+    }
+
+    /**
+     * POST /jobs?operation=filter|nps|index|compare
+     * Queues a filter or returns request and answers 202 at once with the job's id and
+     * status; 503 with Retry-After when the job queue is full.
+     */
+    @PostMapping("/jobs")
+    @ParseTimed(operationParameter = "operation")
+    public ResponseEntity<JobStatus> submitJob(@RequestBody FilterRequest request,
+            @RequestParam(defaultValue = "nps") String operation) {
+        JobStatus status = jobService.submit(request, operation);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").build(status.getId()))
+                .body(status);
+    }
+
+    /**
+     * GET /jobs/{id}
+     * State and progress of a job.
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<JobStatus> getJob(@PathVariable String id) {
+        return ResponseEntity.ok(jobService.status(id));
+    }
+
+    /**
+     * GET /jobs/{id}/result
+     * The response the synchronous endpoint would have given: 200 with the result once
+     * the job succeeded, the error and its status if it failed, 202 with the job status
+     * while it is still queued or running.
+     */
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<Object> getJobResult(@PathVariable String id) {
+        JobStatus status = jobService.status(id);
+        switch (status.getState()) {
+            case "succeeded":
+                return ResponseEntity.ok(jobService.result(id));
+            case "failed":
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("error", status.getError());
+                body.put("message", status.getMessage());
+                return ResponseEntity.status(status.getStatus()).body(body);
+            default:
+                return ResponseEntity.accepted().body(status);
+        }
+    }
+
+    /**
+     * GET /jobs/{id}/events
+     * Server-sent events: a "status" event with the job status now, on every stage
+     * and on completion, after which the stream ends.
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJobEvents(@PathVariable String id) {
+        SseEmitter emitter = new SseEmitter(-1L);
+        Runnable stop = jobService.watch(id, status -> {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(status, MediaType.APPLICATION_JSON));
+                if (status.getFinishedAt() != null) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                // Client went away; the service drops a watcher that throws
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onCompletion(stop);
+        emitter.onTimeout(stop);
+        emitter.onError(error -> stop.run());
+        return emitter;
+    }
+
+    /**
+     * DELETE /jobs/{id}
+     * Cancels a queued or running job and drops it with its result.
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<Void> cancelJob(@PathVariable String id) {
+        jobService.cancel(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * POST /rules
+     * Registers a q/p/k rule set once; filter/returns requests reference it by ruleSetId.
+     */
+    @PostMapping("/rules")
+    public ResponseEntity<RuleSetResponse> registerRuleSet(@RequestBody RuleSetRequest request) {
+        String id = ruleSetRegistry.register(request);
+        return ResponseEntity.ok(toRuleSetResponse(id));
+    }
+
+    /**
+     * GET /rules/{id}
+     * Returns the periods of a registered rule set.
+     */
+    @GetMapping("/rules/{id}")
+    public ResponseEntity<RuleSetResponse> getRuleSet(@PathVariable String id) {
+        return ResponseEntity.ok(toRuleSetResponse(id));
+    }
+
+    /**
+     * DELETE /rules/{id}
+     * Removes a registered rule set.
+     */
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> deleteRuleSet(@PathVariable String id) {
+        ruleSetRegistry.remove(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * PUT /ledgers/{userId}
+     * Opens (or replaces) a user's ledger: rule set (ruleSetId or inline q/p/k), age,
+     * wage, inflation and optional first expenses, in the shape of a returns request.
+     */
+    @PutMapping("/ledgers/{userId}")
+    public ResponseEntity<LedgerAppendResponse> openLedger(@PathVariable String userId,
+            @RequestBody FilterRequest request) {
+        return ResponseEntity.ok(ledgerService.open(userId, request));
+    }
+
+    /**
+     * POST /ledgers/{userId}/expenses
+     * Appends a JSON array of expenses; totals are updated incrementally.
+     */
+    @PostMapping("/ledgers/{userId}/expenses")
+    public ResponseEntity<LedgerAppendResponse> appendToLedger(@PathVariable String userId,
+            @RequestBody TransactionBatch expenses) {
+        return ResponseEntity.ok(ledgerService.append(userId, expenses));
+    }
+
+    /**
+     * GET /ledgers/{userId}
+     * Maintained totals and per-k-period savings of a ledger.
+     */
+    @GetMapping("/ledgers/{userId}")
+    public ResponseEntity<LedgerResponse> getLedger(@PathVariable String userId) {
+        return ResponseEntity.ok(ledgerService.summary(userId));
+    }
+
+    /**
+     * GET /ledgers/{userId}/returns:nps
+     * NPS returns from the ledger's running totals.
+     */
+    @GetMapping("/ledgers/{userId}/returns:nps")
+    public ResponseEntity<ReturnsResponse> getLedgerNPS(@PathVariable String userId) {
+        return ResponseEntity.ok(ledgerService.calculateNPS(userId));
+    }
+
+    /**
+     * GET /ledgers/{userId}/returns:index
+     * Index fund returns from the ledger's running totals.
+     */
+    @GetMapping("/ledgers/{userId}/returns:index")
+    public ResponseEntity<ReturnsResponse> getLedgerIndex(@PathVariable String userId) {
+        return ResponseEntity.ok(ledgerService.calculateIndex(userId));
+    }
+
+    /**
+     * DELETE /ledgers/{userId}
+     * Drops a ledger and its history.
+     */
+    @DeleteMapping("/ledgers/{userId}")
+    public ResponseEntity<Void> deleteLedger(@PathVariable String userId) {
+        ledgerService.remove(userId);
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -76,4 +440,84 @@ public class ChallengeController {
     public ResponseEntity<PerformanceResponse> getPerformance() {
         return ResponseEntity.ok(performanceService.getPerformance());
     }
+
+    /**
+     * GET /performance/jvm
+     * GC, memory pool, allocation, CPU and thread telemetry.
+     */
+    @GetMapping("/performance/jvm")
+    public ResponseEntity<JvmTelemetryResponse> getJvmTelemetry() {
+        return ResponseEntity.ok(performanceService.getJvmTelemetry());
+    }
+
+    /**
+     * Filter or returns response through the result cache: computed and serialized
+     * once per distinct request and response format, with an ETag, and 304 when
+     * If-None-Match already names it. JSON unless Accept names Smile or CBOR.
+     */
+    private ResponseEntity<byte[]> cached(String operation, FilterRequest request, HttpServletRequest http,
+            Function<RuleSet, Object> compute) throws IOException, HttpMediaTypeNotAcceptableException {
+        String accept = http.getHeader(HttpHeaders.ACCEPT);
+        MediaType type = responseType(accept, MediaType.APPLICATION_JSON);
+        if (accept != null && MediaType.parseMediaTypes(accept).stream().noneMatch(type::isCompatibleWith)) {
+            throw new HttpMediaTypeNotAcceptableException(
+                    List.of(MediaType.APPLICATION_JSON, SMILE, MediaType.APPLICATION_CBOR));
+        }
+        RuleSet ruleSet = ruleSetRegistry.resolve(request);
+        ObjectMapper mapper = mapper(type);
+        ResultCache.Entry entry = resultCache.get(ResultCache.key(operation, type.toString(), request, ruleSet),
+                () -> mapper.writeValueAsBytes(compute.apply(ruleSet)));
+        if (ResultCache.matches(http.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.etag()).varyBy(HttpHeaders.ACCEPT)
+                    .build();
+        }
+        return ResponseEntity.ok().contentType(type).eTag(entry.etag()).varyBy(HttpHeaders.ACCEPT)
+                .body(entry.body());
+    }
+
+    /**
+     * Mapper bound to a media type: Smile, CBOR or JSON.
+     */
+    private ObjectMapper mapper(MediaType type) {
+        if (type.equalsTypeAndSubtype(SMILE)) {
+            return smileConverter.getObjectMapper();
+        }
+        if (type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)) {
+            return cborConverter.getObjectMapper();
+        }
+        return objectMapper;
+    }
+
+    /**
+     * Streaming factory of the mapper bound to a media type: Smile, CBOR or JSON.
+     */
+    private JsonFactory factory(MediaType type) {
+        return mapper(type).getFactory();
+    }
+
+    /**
+     * The most preferred of JSON, Smile and CBOR that Accept names explicitly,
+     * otherwise the request's own format.
+     */
+    private static MediaType responseType(String accept, MediaType requestType) {
+        if (accept != null) {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType type : accepted) {
+                for (MediaType format : List.of(MediaType.APPLICATION_JSON, SMILE, MediaType.APPLICATION_CBOR)) {
+                    if (type.equalsTypeAndSubtype(format)) {
+                        return format;
+                    }
+                }
+            }
+        }
+        return requestType.equalsTypeAndSubtype(SMILE) || requestType.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR)
+                ? new MediaType(requestType.getType(), requestType.getSubtype())
+                : MediaType.APPLICATION_JSON;
+    }
+
+    private RuleSetResponse toRuleSetResponse(String id) {
+        RuleSet ruleSet = ruleSetRegistry.get(id);
+        return new RuleSetResponse(id, ruleSet.getQ(), ruleSet.getP(), ruleSet.getK());
+    }
 }
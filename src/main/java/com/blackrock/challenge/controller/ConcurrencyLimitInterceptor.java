@@ -0,0 +1,114 @@
+package com.blackrock.challenge.controller;
+
+import com.blackrock.challenge.engine.GradientLimit;
+import com.blackrock.challenge.service.RetryLaterException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Sheds load before a request body is read: POST and PUT requests are admitted
+ * against a {@link GradientLimit} weighted by Content-Length, and refused with 503
+ * and Retry-After when they do not fit. Bodies of unknown length (chunked NDJSON
+ * batches, CSV uploads) are weighed pessimistically at
+ * {@code unknown-length-weight-bytes}, and their latency is left out of the limit's
+ * samples since there is no size to divide it by.
+ *
+ * Meters: challenge.limiter.limit and challenge.limiter.inflight (bytes), and
+ * challenge.limiter.rejected.
+ */
+@Configuration
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+    private static final String ADMITTED = ConcurrencyLimitInterceptor.class.getName() + ".admitted";
+
+    private final MeterRegistry registry;
+
+    @Value("${challenge.limiter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${challenge.limiter.initial-limit-bytes:16777216}")
+    private long initialLimitBytes = 16 << 20;
+
+    @Value("${challenge.limiter.min-limit-bytes:1048576}")
+    private long minLimitBytes = 1 << 20;
+
+    /** Hard ceiling on body bytes in flight; 0 means a quarter of the maximum heap. */
+    @Value("${challenge.limiter.max-limit-bytes:0}")
+    private long maxLimitBytes = 0;
+
+    @Value("${challenge.limiter.min-weight-bytes:65536}")
+    private long minWeightBytes = 64 << 10;
+
+    /** Weight of a body sent without Content-Length; 0 means the initial limit. */
+    @Value("${challenge.limiter.unknown-length-weight-bytes:0}")
+    private long unknownLengthWeightBytes = 0;
+
+    /** How far latency per byte may rise over its long-term level before the limit shrinks. */
+    @Value("${challenge.limiter.tolerance:2.0}")
+    private double tolerance = 2.0;
+
+    private GradientLimit limit;
+    private Counter rejected;
+
+    public ConcurrencyLimitInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void init() {
+        long ceiling = maxLimitBytes > 0 ? maxLimitBytes : Runtime.getRuntime().maxMemory() / 4;
+        limit = new GradientLimit(initialLimitBytes, Math.min(minLimitBytes, ceiling), ceiling, minWeightBytes,
+                tolerance);
+        Gauge.builder("challenge.limiter.limit", limit, GradientLimit::limit).baseUnit("bytes").register(registry);
+        Gauge.builder("challenge.limiter.inflight", limit, GradientLimit::inFlight).baseUnit("bytes")
+                .register(registry);
+        rejected = Counter.builder("challenge.limiter.rejected").register(registry);
+        if (unknownLengthWeightBytes <= 0) {
+            unknownLengthWeightBytes = initialLimitBytes;
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        if (enabled) {
+            interceptors.addInterceptor(this).addPathPatterns("/blackrock/challenge/v1/**");
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"POST".equals(method) && !"PUT".equals(method)) {
+            return true;
+        }
+        long length = request.getContentLengthLong();
+        long weight = limit.weight(length >= 0 ? length : unknownLengthWeightBytes);
+        if (!limit.tryAcquire(weight)) {
+            rejected.increment();
+            throw new RetryLaterException("Server at capacity (" + limit.inFlight() + " of " + limit.limit()
+                    + " request bytes in flight)", limit.retryAfterSeconds());
+        }
+        request.setAttribute(ADMITTED, new long[] { weight, System.nanoTime(), length >= 0 ? 1 : 0 });
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(ADMITTED) instanceof long[] admitted) {
+            request.removeAttribute(ADMITTED);
+            // Only successful requests of known size say how long real work takes per byte
+            limit.release(admitted[0], System.nanoTime() - admitted[1],
+                    admitted[2] == 1 && ex == null && response.getStatus() < 400);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.blackrock.challenge.controller;
+
+import com.blackrock.challenge.service.PipelineMetrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler whose request body binding is recorded as the parse stage of a
+ * pipeline operation. See {@link ParseTimingAdvice}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@interface ParseTimed {
+
+    /**
+     * Operation the parse time counts under.
+     */
+    String value() default PipelineMetrics.RETURNS;
+
+    /**
+     * Request parameter naming the operation instead, when set: "filter" counts under
+     * filter, anything else under returns.
+     */
+    String operationParameter() default "";
+}
@@ -0,0 +1,65 @@
+package com.blackrock.challenge.controller;
+
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.service.PipelineMetrics;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Times the parse stage of filter and returns requests: reading and binding the
+ * request body (JSON, Smile or CBOR, including the columnar batch) before the handler
+ * runs. Applies to handlers marked {@link ParseTimed}; a job submit counts as the
+ * operation it queues.
+ */
+@ControllerAdvice
+public class ParseTimingAdvice extends RequestBodyAdviceAdapter {
+
+    private static final String STARTED = ParseTimingAdvice.class.getName() + ".started";
+
+    private final PipelineMetrics metrics;
+
+    public ParseTimingAdvice(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+            Class<? extends HttpMessageConverter<?>> converterType) {
+        return methodParameter.hasMethodAnnotation(ParseTimed.class);
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter,
+            Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(STARTED, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+            Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+        Object started = attributes.getAttribute(STARTED, RequestAttributes.SCOPE_REQUEST);
+        if (started != null) {
+            ParseTimed timed = parameter.getMethodAnnotation(ParseTimed.class);
+            String operation = timed.value();
+            if (!timed.operationParameter().isEmpty()) {
+                boolean filter = attributes instanceof ServletRequestAttributes servlet
+                        && PipelineMetrics.FILTER.equalsIgnoreCase(
+                                servlet.getRequest().getParameter(timed.operationParameter()));
+                operation = filter ? PipelineMetrics.FILTER : PipelineMetrics.RETURNS;
+            }
+            metrics.stages(operation).stage(PipelineStage.PARSE, System.nanoTime() - (Long) started);
+        }
+        return body;
+    }
+}
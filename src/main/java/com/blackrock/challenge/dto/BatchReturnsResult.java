@@ -0,0 +1,106 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one entry of a batch returns call: the result for the requested
+ * instrument, or the error that entry alone failed with.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchReturnsResult {
+
+    @JsonProperty("index")
+    private int index;
+
+    @JsonProperty("status")
+    private int status;
+
+    @JsonProperty("returns")
+    private ReturnsResponse returns;
+
+    @JsonProperty("comparison")
+    private ReturnsComparisonResponse comparison;
+
+    @JsonProperty("error")
+    private String error;
+
+    @JsonProperty("message")
+    private String message;
+
+    public BatchReturnsResult() {
+    }
+
+    public static BatchReturnsResult ok(int index, ReturnsResponse returns) {
+        BatchReturnsResult result = new BatchReturnsResult();
+        result.index = index;
+        result.status = 200;
+        result.returns = returns;
+        return result;
+    }
+
+    public static BatchReturnsResult ok(int index, ReturnsComparisonResponse comparison) {
+        BatchReturnsResult result = new BatchReturnsResult();
+        result.index = index;
+        result.status = 200;
+        result.comparison = comparison;
+        return result;
+    }
+
+    public static BatchReturnsResult failed(int index, int status, String error, String message) {
+        BatchReturnsResult result = new BatchReturnsResult();
+        result.index = index;
+        result.status = status;
+        result.error = error;
+        result.message = message;
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public ReturnsResponse getReturns() {
+        return returns;
+    }
+
+    public void setReturns(ReturnsResponse returns) {
+        this.returns = returns;
+    }
+
+    public ReturnsComparisonResponse getComparison() {
+        return comparison;
+    }
+
+    public void setComparison(ReturnsComparisonResponse comparison) {
+        this.comparison = comparison;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
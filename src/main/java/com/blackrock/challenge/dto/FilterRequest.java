@@ -1,13 +1,15 @@
 package com.blackrock.challenge.dto;
 
 import com.blackrock.challenge.model.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.List;
 
 public class FilterRequest {
 
-    private List<Expense> expenses;
+    private TransactionBatch expenses;
 
     @JsonProperty("q")
     private List<QPeriod> q;
@@ -18,6 +20,9 @@ public class FilterRequest {
     @JsonProperty("k")
     private List<KPeriod> k;
 
+    @JsonProperty("ruleSetId")
+    private String ruleSetId;
+
     @JsonProperty("age")
     private int age;
 
@@ -27,6 +32,10 @@ public class FilterRequest {
     @JsonProperty("inflation")
     private double inflation;
 
+    /** Returns only: add a year-by-year corpus projection to every k period. */
+    @JsonProperty("projection")
+    private boolean projection;
+
     public FilterRequest() {
     }
 
@@ -34,14 +43,24 @@ public class FilterRequest {
         return expenses;
     }
 
+    /**
+     * Expenses as a columnar batch (empty when none were sent).
+     */
+    @JsonIgnore
+    public TransactionBatch getTransactionBatch() {
+        return expenses != null ? expenses : new TransactionBatch();
+    }
+
     @JsonSetter("transactions")
+    @JsonDeserialize(as = TransactionBatch.class)
     public void setTransactions(List<Expense> transactions) {
-        this.expenses = transactions;
+        this.expenses = transactions != null ? TransactionBatch.of(transactions) : null;
     }
 
     @JsonSetter("expenses")
+    @JsonDeserialize(as = TransactionBatch.class)
     public void setExpenses(List<Expense> expenses) {
-        this.expenses = expenses;
+        this.expenses = expenses != null ? TransactionBatch.of(expenses) : null;
     }
 
     public List<QPeriod> getQ() {
@@ -68,6 +87,14 @@ public class FilterRequest {
         this.k = k;
     }
 
+    public String getRuleSetId() {
+        return ruleSetId;
+    }
+
+    public void setRuleSetId(String ruleSetId) {
+        this.ruleSetId = ruleSetId;
+    }
+
     public int getAge() {
         return age;
     }
@@ -91,4 +118,12 @@ public class FilterRequest {
     public void setInflation(double inflation) {
         this.inflation = inflation;
     }
+
+    public boolean isProjection() {
+        return projection;
+    }
+
+    public void setProjection(boolean projection) {
+        this.projection = projection;
+    }
 }
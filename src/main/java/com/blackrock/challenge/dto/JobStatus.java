@@ -0,0 +1,165 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * State of an asynchronous job. {@code progress} is the fraction of pipeline stages
+ * completed and {@code stage} the latest of them; {@code status}, {@code error} and
+ * {@code message} describe a failed job as the synchronous endpoint would have.
+ * Times are ISO-8601 instants.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobStatus {
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("operation")
+    private String operation;
+
+    @JsonProperty("state")
+    private String state;
+
+    @JsonProperty("progress")
+    private double progress;
+
+    @JsonProperty("stage")
+    private String stage;
+
+    @JsonProperty("submittedAt")
+    private String submittedAt;
+
+    @JsonProperty("startedAt")
+    private String startedAt;
+
+    @JsonProperty("finishedAt")
+    private String finishedAt;
+
+    @JsonProperty("expiresAt")
+    private String expiresAt;
+
+    @JsonProperty("status")
+    private Integer status;
+
+    @JsonProperty("error")
+    private String error;
+
+    @JsonProperty("message")
+    private String message;
+
+    public JobStatus() {
+    }
+
+    public JobStatus(String id, String operation, String state, double progress, String stage, String submittedAt,
+            String startedAt, String finishedAt, String expiresAt, Integer status, String error, String message) {
+        this.id = id;
+        this.operation = operation;
+        this.state = state;
+        this.progress = progress;
+        this.stage = stage;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.expiresAt = expiresAt;
+        this.status = status;
+        this.error = error;
+        this.message = message;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public double getProgress() {
+        return progress;
+    }
+
+    public void setProgress(double progress) {
+        this.progress = progress;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(String submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(String startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public String getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(String finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(String expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
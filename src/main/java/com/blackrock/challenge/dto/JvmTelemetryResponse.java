@@ -0,0 +1,420 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * JVM runtime telemetry: GC, memory pools, allocation, CPU and threads.
+ */
+public class JvmTelemetryResponse {
+
+    @JsonProperty("time")
+    private String time;
+
+    @JsonProperty("uptimeMs")
+    private long uptimeMs;
+
+    @JsonProperty("gc")
+    private List<Collector> gc;
+
+    @JsonProperty("memory")
+    private Memory memory;
+
+    @JsonProperty("allocation")
+    private Allocation allocation;
+
+    @JsonProperty("cpu")
+    private Cpu cpu;
+
+    @JsonProperty("threads")
+    private Threads threads;
+
+    public JvmTelemetryResponse() {
+    }
+
+    public JvmTelemetryResponse(String time, long uptimeMs, List<Collector> gc, Memory memory, Allocation allocation,
+            Cpu cpu, Threads threads) {
+        this.time = time;
+        this.uptimeMs = uptimeMs;
+        this.gc = gc;
+        this.memory = memory;
+        this.allocation = allocation;
+        this.cpu = cpu;
+        this.threads = threads;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public void setTime(String time) {
+        this.time = time;
+    }
+
+    public long getUptimeMs() {
+        return uptimeMs;
+    }
+
+    public void setUptimeMs(long uptimeMs) {
+        this.uptimeMs = uptimeMs;
+    }
+
+    public List<Collector> getGc() {
+        return gc;
+    }
+
+    public void setGc(List<Collector> gc) {
+        this.gc = gc;
+    }
+
+    public Memory getMemory() {
+        return memory;
+    }
+
+    public void setMemory(Memory memory) {
+        this.memory = memory;
+    }
+
+    public Allocation getAllocation() {
+        return allocation;
+    }
+
+    public void setAllocation(Allocation allocation) {
+        this.allocation = allocation;
+    }
+
+    public Cpu getCpu() {
+        return cpu;
+    }
+
+    public void setCpu(Cpu cpu) {
+        this.cpu = cpu;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Threads threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * One garbage collector: collections and accumulated collection time since start.
+     */
+    public static class Collector {
+
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("count")
+        private long count;
+
+        @JsonProperty("timeMs")
+        private long timeMs;
+
+        public Collector() {
+        }
+
+        public Collector(String name, long count, long timeMs) {
+            this.name = name;
+            this.count = count;
+            this.timeMs = timeMs;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        public long getTimeMs() {
+            return timeMs;
+        }
+
+        public void setTimeMs(long timeMs) {
+            this.timeMs = timeMs;
+        }
+    }
+
+    /**
+     * Heap / non-heap totals or one memory pool, in bytes; max is -1 when undefined.
+     */
+    public static class MemoryStats {
+
+        @JsonProperty("name")
+        private String name;
+
+        @JsonProperty("type")
+        private String type;
+
+        @JsonProperty("used")
+        private long used;
+
+        @JsonProperty("committed")
+        private long committed;
+
+        @JsonProperty("max")
+        private long max;
+
+        public MemoryStats() {
+        }
+
+        public MemoryStats(String name, String type, long used, long committed, long max) {
+            this.name = name;
+            this.type = type;
+            this.used = used;
+            this.committed = committed;
+            this.max = max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public long getUsed() {
+            return used;
+        }
+
+        public void setUsed(long used) {
+            this.used = used;
+        }
+
+        public long getCommitted() {
+            return committed;
+        }
+
+        public void setCommitted(long committed) {
+            this.committed = committed;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public void setMax(long max) {
+            this.max = max;
+        }
+    }
+
+    public static class Memory {
+
+        @JsonProperty("heap")
+        private MemoryStats heap;
+
+        @JsonProperty("nonHeap")
+        private MemoryStats nonHeap;
+
+        @JsonProperty("pools")
+        private List<MemoryStats> pools;
+
+        public Memory() {
+        }
+
+        public Memory(MemoryStats heap, MemoryStats nonHeap, List<MemoryStats> pools) {
+            this.heap = heap;
+            this.nonHeap = nonHeap;
+            this.pools = pools;
+        }
+
+        public MemoryStats getHeap() {
+            return heap;
+        }
+
+        public void setHeap(MemoryStats heap) {
+            this.heap = heap;
+        }
+
+        public MemoryStats getNonHeap() {
+            return nonHeap;
+        }
+
+        public void setNonHeap(MemoryStats nonHeap) {
+            this.nonHeap = nonHeap;
+        }
+
+        public List<MemoryStats> getPools() {
+            return pools;
+        }
+
+        public void setPools(List<MemoryStats> pools) {
+            this.pools = pools;
+        }
+    }
+
+    /**
+     * Heap bytes allocated since start, and the rate since the previous poll.
+     */
+    public static class Allocation {
+
+        @JsonProperty("totalBytes")
+        private long totalBytes;
+
+        @JsonProperty("bytesPerSecond")
+        private double bytesPerSecond;
+
+        public Allocation() {
+        }
+
+        public Allocation(long totalBytes, double bytesPerSecond) {
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public void setTotalBytes(long totalBytes) {
+            this.totalBytes = totalBytes;
+        }
+
+        public double getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public void setBytesPerSecond(double bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+    }
+
+    /**
+     * Process CPU load in [0, 1] over the recent past (-1 when unavailable).
+     */
+    public static class Cpu {
+
+        @JsonProperty("processCpuLoad")
+        private double processCpuLoad;
+
+        @JsonProperty("processCpuTimeMs")
+        private long processCpuTimeMs;
+
+        @JsonProperty("availableProcessors")
+        private int availableProcessors;
+
+        @JsonProperty("systemLoadAverage")
+        private double systemLoadAverage;
+
+        public Cpu() {
+        }
+
+        public Cpu(double processCpuLoad, long processCpuTimeMs, int availableProcessors, double systemLoadAverage) {
+            this.processCpuLoad = processCpuLoad;
+            this.processCpuTimeMs = processCpuTimeMs;
+            this.availableProcessors = availableProcessors;
+            this.systemLoadAverage = systemLoadAverage;
+        }
+
+        public double getProcessCpuLoad() {
+            return processCpuLoad;
+        }
+
+        public void setProcessCpuLoad(double processCpuLoad) {
+            this.processCpuLoad = processCpuLoad;
+        }
+
+        public long getProcessCpuTimeMs() {
+            return processCpuTimeMs;
+        }
+
+        public void setProcessCpuTimeMs(long processCpuTimeMs) {
+            this.processCpuTimeMs = processCpuTimeMs;
+        }
+
+        public int getAvailableProcessors() {
+            return availableProcessors;
+        }
+
+        public void setAvailableProcessors(int availableProcessors) {
+            this.availableProcessors = availableProcessors;
+        }
+
+        public double getSystemLoadAverage() {
+            return systemLoadAverage;
+        }
+
+        public void setSystemLoadAverage(double systemLoadAverage) {
+            this.systemLoadAverage = systemLoadAverage;
+        }
+    }
+
+    public static class Threads {
+
+        @JsonProperty("live")
+        private int live;
+
+        @JsonProperty("peak")
+        private int peak;
+
+        @JsonProperty("daemon")
+        private int daemon;
+
+        @JsonProperty("started")
+        private long started;
+
+        public Threads() {
+        }
+
+        public Threads(int live, int peak, int daemon, long started) {
+            this.live = live;
+            this.peak = peak;
+            this.daemon = daemon;
+            this.started = started;
+        }
+
+        public int getLive() {
+            return live;
+        }
+
+        public void setLive(int live) {
+            this.live = live;
+        }
+
+        public int getPeak() {
+            return peak;
+        }
+
+        public void setPeak(int peak) {
+            this.peak = peak;
+        }
+
+        public int getDaemon() {
+            return daemon;
+        }
+
+        public void setDaemon(int daemon) {
+            this.daemon = daemon;
+        }
+
+        public long getStarted() {
+            return started;
+        }
+
+        public void setStarted(long started) {
+            this.started = started;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.blackrock.challenge.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.List;
+
 public class KPeriodSavings {
 
     @JsonProperty("start")
@@ -19,6 +22,10 @@ public class KPeriodSavings {
     @JsonProperty("taxBenefit")
     private double taxBenefit;
 
+    @JsonProperty("projection")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ProjectionPoint> projection;
+
     public KPeriodSavings() {
     }
 
@@ -69,4 +76,12 @@ public class KPeriodSavings {
     public void setTaxBenefit(double taxBenefit) {
         this.taxBenefit = taxBenefit;
     }
+
+    public List<ProjectionPoint> getProjection() {
+        return projection;
+    }
+
+    public void setProjection(List<ProjectionPoint> projection) {
+        this.projection = projection;
+    }
 }
@@ -0,0 +1,51 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Running savings of one k period.
+ */
+public class KPeriodTotal {
+
+    @JsonProperty("start")
+    private String start;
+
+    @JsonProperty("end")
+    private String end;
+
+    @JsonProperty("amount")
+    private double amount;
+
+    public KPeriodTotal() {
+    }
+
+    public KPeriodTotal(String start, String end, double amount) {
+        this.start = start;
+        this.end = end;
+        this.amount = amount;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    public void setStart(String start) {
+        this.start = start;
+    }
+
+    public String getEnd() {
+        return end;
+    }
+
+    public void setEnd(String end) {
+        this.end = end;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+}
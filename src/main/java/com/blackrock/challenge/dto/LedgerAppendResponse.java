@@ -0,0 +1,54 @@
+package com.blackrock.challenge.dto;
+
+import com.blackrock.challenge.model.InvalidTransaction;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Outcome of appending expenses to a ledger, with the updated totals.
+ */
+public class LedgerAppendResponse {
+
+    @JsonProperty("appended")
+    private int appended;
+
+    @JsonProperty("invalid")
+    private List<InvalidTransaction> invalid;
+
+    @JsonProperty("ledger")
+    private LedgerResponse ledger;
+
+    public LedgerAppendResponse() {
+    }
+
+    public LedgerAppendResponse(int appended, List<InvalidTransaction> invalid, LedgerResponse ledger) {
+        this.appended = appended;
+        this.invalid = invalid;
+        this.ledger = ledger;
+    }
+
+    public int getAppended() {
+        return appended;
+    }
+
+    public void setAppended(int appended) {
+        this.appended = appended;
+    }
+
+    public List<InvalidTransaction> getInvalid() {
+        return invalid;
+    }
+
+    public void setInvalid(List<InvalidTransaction> invalid) {
+        this.invalid = invalid;
+    }
+
+    public LedgerResponse getLedger() {
+        return ledger;
+    }
+
+    public void setLedger(LedgerResponse ledger) {
+        this.ledger = ledger;
+    }
+}
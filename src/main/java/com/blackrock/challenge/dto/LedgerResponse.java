@@ -0,0 +1,90 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Maintained totals of a user's ledger; ruleSetId is null for inline periods.
+ */
+public class LedgerResponse {
+
+    @JsonProperty("userId")
+    private String userId;
+
+    @JsonProperty("ruleSetId")
+    private String ruleSetId;
+
+    @JsonProperty("transactionCount")
+    private int transactionCount;
+
+    @JsonProperty("totalTransactionAmount")
+    private double totalTransactionAmount;
+
+    @JsonProperty("totalCeiling")
+    private double totalCeiling;
+
+    @JsonProperty("savingsByDates")
+    private List<KPeriodTotal> savingsByDates;
+
+    public LedgerResponse() {
+    }
+
+    public LedgerResponse(String userId, String ruleSetId, int transactionCount, double totalTransactionAmount,
+            double totalCeiling, List<KPeriodTotal> savingsByDates) {
+        this.userId = userId;
+        this.ruleSetId = ruleSetId;
+        this.transactionCount = transactionCount;
+        this.totalTransactionAmount = totalTransactionAmount;
+        this.totalCeiling = totalCeiling;
+        this.savingsByDates = savingsByDates;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getRuleSetId() {
+        return ruleSetId;
+    }
+
+    public void setRuleSetId(String ruleSetId) {
+        this.ruleSetId = ruleSetId;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(int transactionCount) {
+        this.transactionCount = transactionCount;
+    }
+
+    public double getTotalTransactionAmount() {
+        return totalTransactionAmount;
+    }
+
+    public void setTotalTransactionAmount(double totalTransactionAmount) {
+        this.totalTransactionAmount = totalTransactionAmount;
+    }
+
+    public double getTotalCeiling() {
+        return totalCeiling;
+    }
+
+    public void setTotalCeiling(double totalCeiling) {
+        this.totalCeiling = totalCeiling;
+    }
+
+    public List<KPeriodTotal> getSavingsByDates() {
+        return savingsByDates;
+    }
+
+    public void setSavingsByDates(List<KPeriodTotal> savingsByDates) {
+        this.savingsByDates = savingsByDates;
+    }
+}
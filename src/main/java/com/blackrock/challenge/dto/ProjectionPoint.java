@@ -0,0 +1,51 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Projected corpus of one k period at a given age: nominal, and in today's money.
+ */
+public class ProjectionPoint {
+
+    @JsonProperty("age")
+    private int age;
+
+    @JsonProperty("nominal")
+    private double nominal;
+
+    @JsonProperty("real")
+    private double real;
+
+    public ProjectionPoint() {
+    }
+
+    public ProjectionPoint(int age, double nominal, double real) {
+        this.age = age;
+        this.nominal = nominal;
+        this.real = real;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public double getNominal() {
+        return nominal;
+    }
+
+    public void setNominal(double nominal) {
+        this.nominal = nominal;
+    }
+
+    public double getReal() {
+        return real;
+    }
+
+    public void setReal(double real) {
+        this.real = real;
+    }
+}
@@ -0,0 +1,36 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ReturnsComparisonResponse {
+
+    @JsonProperty("nps")
+    private ReturnsResponse nps;
+
+    @JsonProperty("index")
+    private ReturnsResponse index;
+
+    public ReturnsComparisonResponse() {
+    }
+
+    public ReturnsComparisonResponse(ReturnsResponse nps, ReturnsResponse index) {
+        this.nps = nps;
+        this.index = index;
+    }
+
+    public ReturnsResponse getNps() {
+        return nps;
+    }
+
+    public void setNps(ReturnsResponse nps) {
+        this.nps = nps;
+    }
+
+    public ReturnsResponse getIndex() {
+        return index;
+    }
+
+    public void setIndex(ReturnsResponse index) {
+        this.index = index;
+    }
+}
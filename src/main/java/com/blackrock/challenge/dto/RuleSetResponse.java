@@ -0,0 +1,62 @@
+package com.blackrock.challenge.dto;
+
+import com.blackrock.challenge.model.*;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public class RuleSetResponse {
+
+    @JsonProperty("id")
+    private String id;
+
+    @JsonProperty("q")
+    private List<QPeriod> q;
+
+    @JsonProperty("p")
+    private List<PPeriod> p;
+
+    @JsonProperty("k")
+    private List<KPeriod> k;
+
+    public RuleSetResponse() {
+    }
+
+    public RuleSetResponse(String id, List<QPeriod> q, List<PPeriod> p, List<KPeriod> k) {
+        this.id = id;
+        this.q = q;
+        this.p = p;
+        this.k = k;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<QPeriod> getQ() {
+        return q;
+    }
+
+    public void setQ(List<QPeriod> q) {
+        this.q = q;
+    }
+
+    public List<PPeriod> getP() {
+        return p;
+    }
+
+    public void setP(List<PPeriod> p) {
+        this.p = p;
+    }
+
+    public List<KPeriod> getK() {
+        return k;
+    }
+
+    public void setK(List<KPeriod> k) {
+        this.k = k;
+    }
+}
@@ -0,0 +1,236 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Monte Carlo returns: per k period, the corpus at retirement at each requested
+ * percentile of the simulated return and inflation paths.
+ */
+public class SimulationResponse {
+
+    @JsonProperty("instrument")
+    private String instrument;
+
+    @JsonProperty("paths")
+    private int paths;
+
+    @JsonProperty("seed")
+    private long seed;
+
+    @JsonProperty("years")
+    private int years;
+
+    @JsonProperty("totalTransactionAmount")
+    private double totalTransactionAmount;
+
+    @JsonProperty("totalCeiling")
+    private double totalCeiling;
+
+    @JsonProperty("savingsByDates")
+    private List<KPeriodOutcomes> savingsByDates;
+
+    public SimulationResponse() {
+    }
+
+    public SimulationResponse(String instrument, int paths, long seed, int years, double totalTransactionAmount,
+            double totalCeiling, List<KPeriodOutcomes> savingsByDates) {
+        this.instrument = instrument;
+        this.paths = paths;
+        this.seed = seed;
+        this.years = years;
+        this.totalTransactionAmount = totalTransactionAmount;
+        this.totalCeiling = totalCeiling;
+        this.savingsByDates = savingsByDates;
+    }
+
+    public String getInstrument() {
+        return instrument;
+    }
+
+    public void setInstrument(String instrument) {
+        this.instrument = instrument;
+    }
+
+    public int getPaths() {
+        return paths;
+    }
+
+    public void setPaths(int paths) {
+        this.paths = paths;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getYears() {
+        return years;
+    }
+
+    public void setYears(int years) {
+        this.years = years;
+    }
+
+    public double getTotalTransactionAmount() {
+        return totalTransactionAmount;
+    }
+
+    public void setTotalTransactionAmount(double totalTransactionAmount) {
+        this.totalTransactionAmount = totalTransactionAmount;
+    }
+
+    public double getTotalCeiling() {
+        return totalCeiling;
+    }
+
+    public void setTotalCeiling(double totalCeiling) {
+        this.totalCeiling = totalCeiling;
+    }
+
+    public List<KPeriodOutcomes> getSavingsByDates() {
+        return savingsByDates;
+    }
+
+    public void setSavingsByDates(List<KPeriodOutcomes> savingsByDates) {
+        this.savingsByDates = savingsByDates;
+    }
+
+    /**
+     * Savings of one k period and their simulated outcomes, in ascending percentile order.
+     */
+    public static class KPeriodOutcomes {
+
+        @JsonProperty("start")
+        private String start;
+
+        @JsonProperty("end")
+        private String end;
+
+        @JsonProperty("amount")
+        private double amount;
+
+        @JsonProperty("taxBenefit")
+        private double taxBenefit;
+
+        @JsonProperty("percentiles")
+        private List<Outcome> percentiles;
+
+        public KPeriodOutcomes() {
+        }
+
+        public KPeriodOutcomes(String start, String end, double amount, double taxBenefit, List<Outcome> percentiles) {
+            this.start = start;
+            this.end = end;
+            this.amount = amount;
+            this.taxBenefit = taxBenefit;
+            this.percentiles = percentiles;
+        }
+
+        public String getStart() {
+            return start;
+        }
+
+        public void setStart(String start) {
+            this.start = start;
+        }
+
+        public String getEnd() {
+            return end;
+        }
+
+        public void setEnd(String end) {
+            this.end = end;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+
+        public double getTaxBenefit() {
+            return taxBenefit;
+        }
+
+        public void setTaxBenefit(double taxBenefit) {
+            this.taxBenefit = taxBenefit;
+        }
+
+        public List<Outcome> getPercentiles() {
+            return percentiles;
+        }
+
+        public void setPercentiles(List<Outcome> percentiles) {
+            this.percentiles = percentiles;
+        }
+    }
+
+    /**
+     * Corpus at retirement at one percentile of the simulated paths: nominal, in today's money, and
+     * profit in today's money over the amount invested.
+     */
+    public static class Outcome {
+
+        @JsonProperty("percentile")
+        private double percentile;
+
+        @JsonProperty("corpus")
+        private double corpus;
+
+        @JsonProperty("realValue")
+        private double realValue;
+
+        @JsonProperty("profit")
+        private double profit;
+
+        public Outcome() {
+        }
+
+        public Outcome(double percentile, double corpus, double realValue, double profit) {
+            this.percentile = percentile;
+            this.corpus = corpus;
+            this.realValue = realValue;
+            this.profit = profit;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public double getCorpus() {
+            return corpus;
+        }
+
+        public void setCorpus(double corpus) {
+            this.corpus = corpus;
+        }
+
+        public double getRealValue() {
+            return realValue;
+        }
+
+        public void setRealValue(double realValue) {
+            this.realValue = realValue;
+        }
+
+        public double getProfit() {
+            return profit;
+        }
+
+        public void setProfit(double profit) {
+            this.profit = profit;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * A returns request plus the parameter grid to sweep. Axes left out keep the
+ * request's own age, inflation and wage, and the instrument's fixed rate.
+ */
+public class SweepRequest extends FilterRequest {
+
+    @JsonProperty("sweep")
+    private Grid sweep;
+
+    public SweepRequest() {
+    }
+
+    public Grid getSweep() {
+        return sweep;
+    }
+
+    public void setSweep(Grid sweep) {
+        this.sweep = sweep;
+    }
+
+    /**
+     * Values per swept parameter. Inflation and rate follow the request's inflation
+     * convention: 5.5 and 0.055 both mean 5.5%.
+     */
+    public static class Grid {
+
+        @JsonProperty("age")
+        private Axis age;
+
+        @JsonProperty("inflation")
+        private Axis inflation;
+
+        @JsonProperty("rate")
+        private Axis rate;
+
+        @JsonProperty("wage")
+        private Axis wage;
+
+        public Grid() {
+        }
+
+        public Grid(Axis age, Axis inflation, Axis rate, Axis wage) {
+            this.age = age;
+            this.inflation = inflation;
+            this.rate = rate;
+            this.wage = wage;
+        }
+
+        public Axis getAge() {
+            return age;
+        }
+
+        public void setAge(Axis age) {
+            this.age = age;
+        }
+
+        public Axis getInflation() {
+            return inflation;
+        }
+
+        public void setInflation(Axis inflation) {
+            this.inflation = inflation;
+        }
+
+        public Axis getRate() {
+            return rate;
+        }
+
+        public void setRate(Axis rate) {
+            this.rate = rate;
+        }
+
+        public Axis getWage() {
+            return wage;
+        }
+
+        public void setWage(Axis wage) {
+            this.wage = wage;
+        }
+    }
+
+    /**
+     * Either a list of values ({@code [55, 58, 60]}) or an inclusive range
+     * ({@code {"from": 4, "to": 8, "step": 0.5}}).
+     */
+    public static class Axis {
+
+        @JsonProperty("values")
+        private List<Double> values;
+
+        @JsonProperty("from")
+        private Double from;
+
+        @JsonProperty("to")
+        private Double to;
+
+        @JsonProperty("step")
+        private Double step;
+
+        public Axis() {
+        }
+
+        @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+        public Axis(List<Double> values) {
+            this.values = values;
+        }
+
+        public Axis(Double from, Double to, Double step) {
+            this.from = from;
+            this.to = to;
+            this.step = step;
+        }
+
+        /**
+         * The axis values, in the order given (ranges ascend from {@code from}).
+         */
+        public double[] points(String name, int maxValues) {
+            if (values != null) {
+                if (values.isEmpty() || values.size() > maxValues) {
+                    throw new IllegalArgumentException(name + " needs 1 to " + maxValues + " values");
+                }
+                double[] points = new double[values.size()];
+                for (int i = 0; i < points.length; i++) {
+                    Double value = values.get(i);
+                    if (value == null || !Double.isFinite(value)) {
+                        throw new IllegalArgumentException(name + " values must be numbers");
+                    }
+                    points[i] = value;
+                }
+                return points;
+            }
+            if (from == null || to == null || step == null || !Double.isFinite(from) || !Double.isFinite(to)
+                    || !(step > 0) || to < from) {
+                throw new IllegalArgumentException(name + " needs values, or from <= to and a positive step");
+            }
+            // Tolerate the rounding of (to - from) / step so an exact multiple includes "to"
+            double steps = Math.floor((to - from) / step + 1e-9);
+            if (steps + 1 > maxValues) {
+                throw new IllegalArgumentException(name + " needs 1 to " + maxValues + " values");
+            }
+            double[] points = new double[(int) steps + 1];
+            for (int i = 0; i < points.length; i++) {
+                // Decimal steps such as 0.1 would otherwise print as 0.30000000000000004
+                points[i] = Math.round((from + i * step) * 1e9) / 1e9;
+            }
+            return points;
+        }
+
+        public List<Double> getValues() {
+            return values;
+        }
+
+        public void setValues(List<Double> values) {
+            this.values = values;
+        }
+
+        public Double getFrom() {
+            return from;
+        }
+
+        public void setFrom(Double from) {
+            this.from = from;
+        }
+
+        public Double getTo() {
+            return to;
+        }
+
+        public void setTo(Double to) {
+            this.to = to;
+        }
+
+        public Double getStep() {
+            return step;
+        }
+
+        public void setStep(Double step) {
+            this.step = step;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.blackrock.challenge.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Returns over a parameter grid. Profit depends on age, inflation and rate only,
+ * and the NPS tax benefit on wage only, so each is listed once over its own axes
+ * instead of repeated for every combination with the others.
+ */
+public class SweepResponse {
+
+    @JsonProperty("instrument")
+    private String instrument;
+
+    @JsonProperty("totalTransactionAmount")
+    private double totalTransactionAmount;
+
+    @JsonProperty("totalCeiling")
+    private double totalCeiling;
+
+    @JsonProperty("savingsByDates")
+    private List<KPeriodTotal> savingsByDates;
+
+    @JsonProperty("points")
+    private List<Point> points;
+
+    @JsonProperty("taxBenefits")
+    private List<WageBenefit> taxBenefits;
+
+    public SweepResponse() {
+    }
+
+    public SweepResponse(String instrument, double totalTransactionAmount, double totalCeiling,
+            List<KPeriodTotal> savingsByDates, List<Point> points, List<WageBenefit> taxBenefits) {
+        this.instrument = instrument;
+        this.totalTransactionAmount = totalTransactionAmount;
+        this.totalCeiling = totalCeiling;
+        this.savingsByDates = savingsByDates;
+        this.points = points;
+        this.taxBenefits = taxBenefits;
+    }
+
+    public String getInstrument() {
+        return instrument;
+    }
+
+    public void setInstrument(String instrument) {
+        this.instrument = instrument;
+    }
+
+    public double getTotalTransactionAmount() {
+        return totalTransactionAmount;
+    }
+
+    public void setTotalTransactionAmount(double totalTransactionAmount) {
+        this.totalTransactionAmount = totalTransactionAmount;
+    }
+
+    public double getTotalCeiling() {
+        return totalCeiling;
+    }
+
+    public void setTotalCeiling(double totalCeiling) {
+        this.totalCeiling = totalCeiling;
+    }
+
+    public List<KPeriodTotal> getSavingsByDates() {
+        return savingsByDates;
+    }
+
+    public void setSavingsByDates(List<KPeriodTotal> savingsByDates) {
+        this.savingsByDates = savingsByDates;
+    }
+
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<Point> points) {
+        this.points = points;
+    }
+
+    public List<WageBenefit> getTaxBenefits() {
+        return taxBenefits;
+    }
+
+    public void setTaxBenefits(List<WageBenefit> taxBenefits) {
+        this.taxBenefits = taxBenefits;
+    }
+
+    /**
+     * Inflation-adjusted profit per k period (in k period order) at one grid point.
+     */
+    public static class Point {
+
+        @JsonProperty("age")
+        private int age;
+
+        @JsonProperty("inflation")
+        private double inflation;
+
+        @JsonProperty("rate")
+        private double rate;
+
+        @JsonProperty("profit")
+        private double[] profit;
+
+        public Point() {
+        }
+
+        public Point(int age, double inflation, double rate, double[] profit) {
+            this.age = age;
+            this.inflation = inflation;
+            this.rate = rate;
+            this.profit = profit;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public double getInflation() {
+            return inflation;
+        }
+
+        public void setInflation(double inflation) {
+            this.inflation = inflation;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+
+        public double[] getProfit() {
+            return profit;
+        }
+
+        public void setProfit(double[] profit) {
+            this.profit = profit;
+        }
+    }
+
+    /**
+     * NPS tax benefit per k period (in k period order) at one wage.
+     */
+    public static class WageBenefit {
+
+        @JsonProperty("wage")
+        private double wage;
+
+        @JsonProperty("taxBenefit")
+        private double[] taxBenefit;
+
+        public WageBenefit() {
+        }
+
+        public WageBenefit(double wage, double[] taxBenefit) {
+            this.wage = wage;
+            this.taxBenefit = taxBenefit;
+        }
+
+        public double getWage() {
+            return wage;
+        }
+
+        public void setWage(double wage) {
+            this.wage = wage;
+        }
+
+        public double[] getTaxBenefit() {
+            return taxBenefit;
+        }
+
+        public void setTaxBenefit(double[] taxBenefit) {
+            this.taxBenefit = taxBenefit;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.TransactionBatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reads a CSV file of expenses straight into a {@link TransactionBatch}.
+ *
+ * The file is cut into chunks of about {@code chunkBytes}, each moved forward to the
+ * next line start, so no line spans two chunks. Every chunk is memory-mapped on its
+ * own and parsed into its own batch; the batches are then appended in file order,
+ * so the result is the same however many chunks ran in parallel.
+ *
+ * Columns are {@code date,amount}, or named by a header line (one with no digits),
+ * in which case other columns are ignored. Fields may be quoted and padded with
+ * spaces; CRLF line ends, a UTF-8 byte order mark and blank lines are accepted.
+ * A missing or empty date binds as null, like a JSON null, and fails validation as usual;
+ * an unreadable amount fails the whole read with its byte position.
+ */
+public final class CsvExpenseReader {
+
+    /** Default chunk size: large enough to amortize a mapping, small enough to balance. */
+    public static final int CHUNK_BYTES = 4 << 20;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private CsvExpenseReader() {
+    }
+
+    public static TransactionBatch read(Path file, ForkJoinPool pool) throws IOException {
+        return read(file, CHUNK_BYTES, pool);
+    }
+
+    public static TransactionBatch read(Path file, int chunkBytes, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long dataStart = skipBom(channel);
+            int[] columns = { 0, 1 };
+            long headerEnd = lineStart(channel, dataStart + 1, size);
+            String firstLine = text(channel, dataStart, headerEnd);
+            if (!firstLine.isBlank() && firstLine.chars().noneMatch(Character::isDigit)) {
+                columns = columns(firstLine);
+                dataStart = headerEnd;
+            }
+
+            int chunks = (int) Math.max(1, (size - dataStart + chunkBytes - 1) / chunkBytes);
+            long[] bounds = new long[chunks + 1];
+            bounds[0] = dataStart;
+            for (int c = 1; c < chunks; c++) {
+                bounds[c] = Math.max(bounds[c - 1], lineStart(channel, dataStart + (long) c * chunkBytes, size));
+            }
+            bounds[chunks] = size;
+
+            TransactionBatch[] parts = new TransactionBatch[chunks];
+            int dateColumn = columns[0];
+            int amountColumn = columns[1];
+            if (chunks == 1 || pool.getParallelism() < 2) {
+                for (int c = 0; c < chunks; c++) {
+                    parts[c] = parse(channel, bounds[c], bounds[c + 1], dateColumn, amountColumn);
+                }
+            } else {
+                try {
+                    pool.invoke(new RangeTask(0, chunks, 1, c -> {
+                        try {
+                            parts[c] = parse(channel, bounds[c], bounds[c + 1], dateColumn, amountColumn);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+
+            if (chunks == 1) {
+                return parts[0];
+            }
+            int rows = 0;
+            for (TransactionBatch part : parts) {
+                rows += part.size();
+            }
+            TransactionBatch batch = new TransactionBatch(rows);
+            for (TransactionBatch part : parts) {
+                batch.append(part);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Rows of [from, to), which starts at a line start and ends at one (or at EOF).
+     */
+    private static TransactionBatch parse(FileChannel channel, long from, long to, int dateColumn,
+            int amountColumn) throws IOException {
+        TransactionBatch batch = new TransactionBatch((int) Math.min((to - from) / 24 + 1, Integer.MAX_VALUE));
+        if (to <= from) {
+            return batch;
+        }
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        int end = map.limit();
+        char[] date = new char[32];
+        int line = 0;
+        while (line < end) {
+            int lineEnd = line;
+            while (lineEnd < end && map.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > line && map.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (!blank(map, line, contentEnd)) {
+                int dateStart = -1;
+                int dateEnd = -1;
+                int amountStart = -1;
+                int amountEnd = -1;
+                int column = 0;
+                int field = line;
+                boolean quoted = false;
+                for (int i = line; i <= contentEnd; i++) {
+                    byte b = i < contentEnd ? map.get(i) : (byte) ',';
+                    if (b == '"') {
+                        quoted = !quoted;
+                    } else if (b == ',' && (!quoted || i == contentEnd)) {
+                        if (column == dateColumn) {
+                            dateStart = field;
+                            dateEnd = i;
+                        } else if (column == amountColumn) {
+                            amountStart = field;
+                            amountEnd = i;
+                        }
+                        column++;
+                        field = i + 1;
+                    }
+                }
+
+                double amount = amount(map, amountStart, amountEnd, from + line);
+                int length = -1;
+                if (dateStart >= 0) {
+                    while (dateStart < dateEnd && trimmable(map.get(dateStart))) {
+                        dateStart++;
+                    }
+                    while (dateEnd > dateStart && trimmable(map.get(dateEnd - 1))) {
+                        dateEnd--;
+                    }
+                    length = dateEnd > dateStart ? dateEnd - dateStart : -1;
+                    if (length > date.length) {
+                        date = new char[Math.max(length, date.length * 2)];
+                    }
+                    for (int i = 0; i < length; i++) {
+                        date[i] = (char) (map.get(dateStart + i) & 0xFF);
+                    }
+                }
+                batch.add(date, 0, length, amount);
+            }
+            line = lineEnd + 1;
+        }
+        return batch;
+    }
+
+    /**
+     * Amount of the field [start, end) of the line at file position {@code line}:
+     * plain decimals of up to 15 digits are built exactly from their digits (one
+     * correctly rounded division, so the same double Double.parseDouble gives);
+     * anything else goes through Double.parseDouble.
+     */
+    private static double amount(ByteBuffer map, int start, int end, long line) {
+        if (start >= 0) {
+            while (start < end && trimmable(map.get(start))) {
+                start++;
+            }
+            while (end > start && trimmable(map.get(end - 1))) {
+                end--;
+            }
+        }
+        if (start < 0 || start == end) {
+            throw new IllegalArgumentException("Missing amount in the line at byte " + line);
+        }
+        int i = start;
+        boolean negative = map.get(i) == '-';
+        if (negative || map.get(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            byte b = map.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else if (b == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == end && digits > 0 && digits <= 15) {
+            double value = fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+            return negative ? -value : value;
+        }
+        byte[] bytes = new byte[end - start];
+        map.get(start, bytes);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        try {
+            double value = Double.parseDouble(text);
+            if (Double.isFinite(value)) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid amount '" + text + "' in the line at byte " + line);
+    }
+
+    /**
+     * Indexes of the date and amount columns named by a header line.
+     */
+    private static int[] columns(String header) {
+        String[] names = header.split(",", -1);
+        int date = -1;
+        int amount = -1;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].strip().replace("\"", "").toLowerCase(Locale.ROOT);
+            if (name.equals("date") && date < 0) {
+                date = i;
+            } else if (name.equals("amount") && amount < 0) {
+                amount = i;
+            }
+        }
+        if (date < 0 || amount < 0) {
+            throw new IllegalArgumentException("CSV header needs date and amount columns, got: " + header.strip());
+        }
+        return new int[] { date, amount };
+    }
+
+    /**
+     * Smallest position at or after {@code position} that starts a line (or EOF).
+     */
+    private static long lineStart(FileChannel channel, long position, long size) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        long at = position - 1;
+        while (at < size) {
+            buffer.clear();
+            int read = channel.read(buffer, at);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return at + i + 1;
+                }
+            }
+            at += read;
+        }
+        return size;
+    }
+
+    private static long skipBom(FileChannel channel) throws IOException {
+        ByteBuffer bom = ByteBuffer.allocate(3);
+        channel.read(bom, 0);
+        return bom.position() == 3 && bom.get(0) == (byte) 0xEF && bom.get(1) == (byte) 0xBB
+                && bom.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    private static String text(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(to - from, 4096));
+        channel.read(buffer, from);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean blank(ByteBuffer map, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!trimmable(map.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean trimmable(byte b) {
+        return b == ' ' || b == '\t' || b == '"';
+    }
+}
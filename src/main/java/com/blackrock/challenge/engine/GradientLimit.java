@@ -0,0 +1,109 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Adaptive limit on the work in flight, measured in weight units (bytes of request
+ * body), after the gradient scheme of Netflix's concurrency-limits (Gradient2).
+ *
+ * Every completed request gives a latency per weight unit, so a large body is not
+ * mistaken for congestion. A short average of that latency tracks current
+ * conditions and a long average the normal level. While the short average stays
+ * within {@code tolerance} × the long one the limit grows by about
+ * sqrt(limit × minWeight) per sample; beyond that it shrinks in proportion, by up
+ * to half per sample before smoothing. The limit stays within [minLimit, maxLimit].
+ *
+ * One request is always admitted when nothing is in flight, so a body larger than
+ * the limit is slow rather than impossible.
+ */
+public final class GradientLimit {
+
+    private static final double SHORT_ALPHA = 0.1;
+    private static final double LONG_ALPHA = 1.0 / 500;
+    private static final double SMOOTHING = 0.2;
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double minWeight;
+    private final double tolerance;
+
+    private double limit;
+    private long inFlight;
+    private double shortLatency = Double.NaN;
+    private double longLatency = Double.NaN;
+    private double averageNanos = Double.NaN;
+
+    public GradientLimit(long initialLimit, long minLimit, long maxLimit, long minWeight, double tolerance) {
+        if (minLimit < 1 || maxLimit < minLimit || minWeight < 1 || !(tolerance >= 1)) {
+            throw new IllegalArgumentException("Invalid limiter settings: limit " + minLimit + ".." + maxLimit
+                    + ", min weight " + minWeight + ", tolerance " + tolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.minWeight = minWeight;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /** Weight a request is counted at: its size, but at least {@code minWeight}. */
+    public long weight(long bytes) {
+        return Math.max((long) minWeight, bytes);
+    }
+
+    /**
+     * Admit {@code weight} units if they fit under the limit (or nothing is in flight).
+     */
+    public synchronized boolean tryAcquire(long weight) {
+        if (inFlight > 0 && inFlight + weight > limit) {
+            return false;
+        }
+        inFlight += weight;
+        return true;
+    }
+
+    /**
+     * Return the units of a finished request. {@code sample} says whether its latency
+     * reflects real work (a request rejected at validation does not).
+     */
+    public synchronized void release(long weight, long nanos, boolean sample) {
+        long before = inFlight;
+        inFlight -= weight;
+        if (!sample) {
+            return;
+        }
+        averageNanos = Double.isNaN(averageNanos) ? nanos : averageNanos + (nanos - averageNanos) * SHORT_ALPHA;
+        double latency = nanos / (double) weight;
+        if (Double.isNaN(shortLatency)) {
+            shortLatency = latency;
+            longLatency = latency;
+            return;
+        }
+        shortLatency += (latency - shortLatency) * SHORT_ALPHA;
+        longLatency += (latency - longLatency) * LONG_ALPHA;
+        // After a long overload the long average has crept up; let it fall back quickly
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+        // A limit that is not being used says nothing about how far it could go
+        if (before < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double target = limit * gradient + Math.sqrt(limit * minWeight);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    public synchronized long limit() {
+        return (long) limit;
+    }
+
+    public synchronized long inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Seconds until a rejected caller is likely to fit: the recent average request
+     * time, rounded up.
+     */
+    public synchronized long retryAfterSeconds() {
+        return Double.isNaN(averageNanos) ? 1 : Math.max(1, (long) Math.ceil(averageNanos / 1e9));
+    }
+}
@@ -0,0 +1,41 @@
+package com.blackrock.challenge.engine;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared {@link GrowthFactors} by (rate, inflation, years).
+ *
+ * Factors depend only on those three inputs, so every k period of every request
+ * with the same age and inflation reuses one entry. Inflation is caller-supplied,
+ * so the cache is bounded: once it holds {@code maxEntries} it is cleared and
+ * refilled, which keeps it cheap without tracking recency.
+ */
+public final class GrowthFactorCache {
+
+    private record Key(double rate, double inflation, int years) {
+    }
+
+    private final Map<Key, GrowthFactors> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    public GrowthFactorCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public GrowthFactors get(double rate, double inflation, int years) {
+        Key key = new Key(rate, inflation, years);
+        GrowthFactors factors = entries.get(key);
+        if (factors == null) {
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            factors = entries.computeIfAbsent(key, k -> GrowthFactors.compute(k.rate(), k.inflation(), k.years()));
+        }
+        return factors;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
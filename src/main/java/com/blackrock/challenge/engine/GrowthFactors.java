@@ -0,0 +1,69 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Compound growth and inflation factors for one (rate, inflation, years) triple.
+ *
+ * {@link #growth()} and {@link #deflator()} are the factors at retirement, computed
+ * with Math.pow exactly as the returns calculation always has. The per-year curve
+ * (year 0..years) is built with running products, one multiply per year, and ends
+ * exactly on those retirement factors.
+ */
+public final class GrowthFactors {
+
+    private final double growth;
+    private final double deflator;
+    private final double[] growthByYear;
+    private final double[] deflatorByYear;
+
+    private GrowthFactors(double growth, double deflator, double[] growthByYear, double[] deflatorByYear) {
+        this.growth = growth;
+        this.deflator = deflator;
+        this.growthByYear = growthByYear;
+        this.deflatorByYear = deflatorByYear;
+    }
+
+    /**
+     * @param years years until retirement; no curve is built when it is not positive
+     */
+    public static GrowthFactors compute(double rate, double inflation, int years) {
+        double growth = Math.pow(1 + rate, years);
+        double deflator = Math.pow(1 + inflation, years);
+        int points = Math.max(years, 0) + 1;
+        double[] growthByYear = new double[points];
+        double[] deflatorByYear = new double[points];
+        growthByYear[0] = 1;
+        deflatorByYear[0] = 1;
+        for (int y = 1; y < points; y++) {
+            growthByYear[y] = growthByYear[y - 1] * (1 + rate);
+            deflatorByYear[y] = deflatorByYear[y - 1] * (1 + inflation);
+        }
+        if (years > 0) {
+            growthByYear[years] = growth;
+            deflatorByYear[years] = deflator;
+        }
+        return new GrowthFactors(growth, deflator, growthByYear, deflatorByYear);
+    }
+
+    /** (1 + rate)^years */
+    public double growth() {
+        return growth;
+    }
+
+    /** (1 + inflation)^years */
+    public double deflator() {
+        return deflator;
+    }
+
+    /** Last year of the curve (0 when retirement age is already reached). */
+    public int years() {
+        return growthByYear.length - 1;
+    }
+
+    public double growth(int year) {
+        return growthByYear[year];
+    }
+
+    public double deflator(int year) {
+        return deflatorByYear[year];
+    }
+}
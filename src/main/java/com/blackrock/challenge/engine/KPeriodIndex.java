@@ -0,0 +1,110 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.KPeriod;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index over k periods (epoch seconds, inclusive ends).
+ *
+ * Keeps the windows in input order for per-window aggregation, plus the union of
+ * all windows merged into sorted disjoint intervals, so membership ("is this
+ * instant inside any k period?") is one binary search regardless of overlap.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class KPeriodIndex {
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] mergedStarts;
+    private final long[] mergedEnds;
+
+    private KPeriodIndex(long[] starts, long[] ends, long[] mergedStarts, long[] mergedEnds) {
+        this.starts = starts;
+        this.ends = ends;
+        this.mergedStarts = mergedStarts;
+        this.mergedEnds = mergedEnds;
+    }
+
+    /**
+     * Compile k periods, converting their dates with the given parser.
+     */
+    public static KPeriodIndex compile(List<KPeriod> kPeriods, ToLongFunction<String> epochParser) {
+        long[] starts = new long[kPeriods.size()];
+        long[] ends = new long[kPeriods.size()];
+        for (int j = 0; j < kPeriods.size(); j++) {
+            starts[j] = epochParser.applyAsLong(kPeriods.get(j).getStart());
+            ends[j] = epochParser.applyAsLong(kPeriods.get(j).getEnd());
+        }
+        return compile(starts, ends);
+    }
+
+    public static KPeriodIndex compile(long[] starts, long[] ends) {
+        int[] order = PrimitiveSort.orderBy(starts, starts.length);
+        long[] mergedStarts = new long[starts.length];
+        long[] mergedEnds = new long[starts.length];
+        int merged = 0;
+        for (int i : order) {
+            long start = starts[i];
+            long end = ends[i];
+            if (start > end) {
+                continue;
+            }
+            // Instants are whole seconds, so windows that touch (end + 1 == start) merge too
+            if (merged > 0 && start <= mergedEnds[merged - 1] + 1) {
+                mergedEnds[merged - 1] = Math.max(mergedEnds[merged - 1], end);
+            } else {
+                mergedStarts[merged] = start;
+                mergedEnds[merged] = end;
+                merged++;
+            }
+        }
+        return new KPeriodIndex(starts.clone(), ends.clone(),
+                Arrays.copyOf(mergedStarts, merged), Arrays.copyOf(mergedEnds, merged));
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public long start(int window) {
+        return starts[window];
+    }
+
+    public long end(int window) {
+        return ends[window];
+    }
+
+    /**
+     * True if the instant falls inside at least one k period.
+     */
+    public boolean contains(long epochSecond) {
+        int lo = 0;
+        int hi = mergedStarts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mergedStarts[mid] > epochSecond) {
+                hi = mid - 1;
+            } else if (mergedEnds[mid] < epochSecond) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sum of remanents inside each window, in window order.
+     */
+    public double[] sums(RemanentPrefixSums prefixSums) {
+        double[] sums = new double[starts.length];
+        for (int j = 0; j < starts.length; j++) {
+            sums[j] = prefixSums.sum(starts[j], ends[j]);
+        }
+        return sums;
+    }
+}
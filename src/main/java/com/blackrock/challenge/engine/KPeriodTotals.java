@@ -0,0 +1,124 @@
+package com.blackrock.challenge.engine;
+
+import java.util.Arrays;
+
+/**
+ * Running per-k-period sums that accept remanents one at a time.
+ *
+ * The k period starts and (end + 1) instants are compressed into sorted distinct
+ * boundaries, which split the timeline into buckets. A Fenwick tree holds the
+ * remanent sum of every bucket, so adding a remanent is one binary search plus
+ * O(log b) tree updates, and the sum of a window is two prefix queries, where b is
+ * the number of boundaries (at most 2k). History size never enters the cost.
+ *
+ * Not thread-safe; callers serialize access.
+ */
+public final class KPeriodTotals {
+
+    private final long[] bounds;
+    private final int[] fromBucket;
+    private final int[] toBucket;
+    private final double[] tree;
+
+    public KPeriodTotals(KPeriodIndex kIndex) {
+        int windows = kIndex.size();
+        long[] points = new long[windows * 2];
+        int count = 0;
+        for (int j = 0; j < windows; j++) {
+            if (kIndex.start(j) <= kIndex.end(j)) {
+                points[count++] = kIndex.start(j);
+                points[count++] = kIndex.end(j) + 1;
+            }
+        }
+        Arrays.sort(points, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || points[i] != points[distinct - 1]) {
+                points[distinct++] = points[i];
+            }
+        }
+        this.bounds = Arrays.copyOf(points, distinct);
+
+        // Window j covers buckets [fromBucket[j], toBucket[j]); empty windows cover none
+        this.fromBucket = new int[windows];
+        this.toBucket = new int[windows];
+        for (int j = 0; j < windows; j++) {
+            if (kIndex.start(j) <= kIndex.end(j)) {
+                fromBucket[j] = bucketOf(kIndex.start(j));
+                toBucket[j] = bucketOf(kIndex.end(j) + 1);
+            }
+        }
+        this.tree = new double[distinct + 1];
+    }
+
+    /**
+     * Add a remanent at the given instant to every window containing it.
+     */
+    public void add(long epochSecond, double remanent) {
+        int bucket = bucketOf(epochSecond);
+        if (bucket < 0) {
+            return;
+        }
+        for (int i = bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += remanent;
+        }
+    }
+
+    public double sum(int window) {
+        return prefix(toBucket[window]) - prefix(fromBucket[window]);
+    }
+
+    /**
+     * Sum of every window, in window order.
+     */
+    public double[] sums() {
+        double[] sums = new double[fromBucket.length];
+        for (int j = 0; j < sums.length; j++) {
+            sums[j] = sum(j);
+        }
+        return sums;
+    }
+
+    /**
+     * Copy of the raw tree, for snapshots; {@link #load} restores it.
+     */
+    public double[] tree() {
+        return tree.clone();
+    }
+
+    public void load(double[] snapshot) {
+        if (snapshot.length != tree.length) {
+            throw new IllegalArgumentException("Snapshot has " + snapshot.length + " k buckets, expected "
+                    + tree.length);
+        }
+        System.arraycopy(snapshot, 0, tree, 0, tree.length);
+    }
+
+    /**
+     * Sum of buckets [0, bucket).
+     */
+    private double prefix(int bucket) {
+        double sum = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Last bucket whose lower boundary is at or before the instant, or -1.
+     */
+    private int bucketOf(long epochSecond) {
+        int lo = 0;
+        int hi = bounds.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] <= epochSecond) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+}
@@ -0,0 +1,125 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Open-addressing set of primitive longs (linear probing, power-of-two table).
+ *
+ * Used for duplicate detection on epoch seconds: no boxing and no node per entry,
+ * just one long[] sized up front from the expected number of keys.
+ */
+public final class LongHashSet {
+
+    private static final long FREE = 0;
+
+    /** Largest table a long[] can be doubled to; at load 1/2 it holds MAX_SIZE keys. */
+    private static final int MAX_CAPACITY = 1 << 30;
+    public static final int MAX_SIZE = MAX_CAPACITY >>> 1;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int growAt;
+    private boolean containsFree;
+
+    /**
+     * @param expectedSize number of keys the set should hold without resizing
+     * @throws IllegalArgumentException if expectedSize is above {@link #MAX_SIZE}
+     */
+    public LongHashSet(int expectedSize) {
+        if (expectedSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Expected size " + expectedSize + " exceeds the maximum of " + MAX_SIZE);
+        }
+        // Keep the load factor at or below 1/2 so probe runs stay short
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Add a key; returns false if it was already present.
+     */
+    public boolean add(long key) {
+        if (key == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == MAX_SIZE) {
+            throw new IllegalStateException("LongHashSet is full (" + MAX_SIZE + " keys)");
+        }
+        keys[slot] = key;
+        if (++size > growAt) {
+            rehash();
+        }
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == FREE) {
+            return containsFree;
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The keys in table order (unordered).
+     */
+    public long[] toArray() {
+        long[] out = new long[size];
+        int count = 0;
+        if (containsFree) {
+            out[count++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                out[count++] = key;
+            }
+        }
+        return out;
+    }
+
+    private int slot(long key) {
+        // Fibonacci hashing spreads consecutive timestamps across the table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        growAt = capacity >>> 1;
+    }
+
+    private void rehash() {
+        long[] old = keys;
+        allocate(old.length << 1);
+        for (long key : old) {
+            if (key != FREE) {
+                int slot = slot(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
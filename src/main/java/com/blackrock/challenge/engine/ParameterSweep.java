@@ -0,0 +1,77 @@
+package com.blackrock.challenge.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Inflation-adjusted profit of every k period over a grid of years to retirement,
+ * inflation rates and return rates, from one set of k sums.
+ *
+ * Profit is {@code sum * (1 + rate)^years / (1 + inflation)^years - sum}, rounded to
+ * cents exactly as a single returns calculation rounds it. The powers are taken
+ * once per (years, rate) and (years, inflation) pair, so the grid itself is one
+ * multiply, divide and round per cell. Large grids are split by grid point across
+ * a ForkJoinPool; each cell is written by exactly one task.
+ */
+public final class ParameterSweep {
+
+    /** Grids of at least this many cells (grid points × k periods) go parallel. */
+    public static final int PARALLEL_CELLS = 65_536;
+
+    /** Cells handled by one leaf task. */
+    private static final int CHUNK_CELLS = 16_384;
+
+    private ParameterSweep() {
+    }
+
+    /**
+     * Profits for every (years, inflation, rate) combination, laid out as
+     * {@code [((y * inflations + i) * rates + r) * k + j]} for k period j.
+     *
+     * @param inflations annual inflation as fractions (0.055 = 5.5%)
+     * @param rates      annual returns as fractions
+     */
+    public static double[] profits(double[] kSums, int[] years, double[] inflations, double[] rates,
+            ForkJoinPool pool) {
+        int k = kSums.length;
+        int points = years.length * inflations.length * rates.length;
+        double[] growth = powers(rates, years);
+        double[] deflator = powers(inflations, years);
+        double[] profits = new double[points * k];
+
+        IntConsumer point = index -> {
+            int r = index % rates.length;
+            int i = (index / rates.length) % inflations.length;
+            int y = index / (rates.length * inflations.length);
+            double g = growth[y * rates.length + r];
+            double d = deflator[y * inflations.length + i];
+            int base = index * k;
+            for (int j = 0; j < k; j++) {
+                double invested = kSums[j];
+                profits[base + j] = Math.round((invested * g / d - invested) * 100.0) / 100.0;
+            }
+        };
+
+        if ((long) points * k < PARALLEL_CELLS || pool.getParallelism() < 2) {
+            for (int index = 0; index < points; index++) {
+                point.accept(index);
+            }
+        } else {
+            pool.invoke(new RangeTask(0, points, Math.max(1, CHUNK_CELLS / Math.max(k, 1)), point));
+        }
+        return profits;
+    }
+
+    /**
+     * {@code (1 + rates[r])^years[y]} at {@code [y * rates.length + r]}.
+     */
+    private static double[] powers(double[] rates, int[] years) {
+        double[] powers = new double[years.length * rates.length];
+        for (int y = 0; y < years.length; y++) {
+            for (int r = 0; r < rates.length; r++) {
+                powers[y * rates.length + r] = Math.pow(1 + rates[r], years[y]);
+            }
+        }
+        return powers;
+    }
+}
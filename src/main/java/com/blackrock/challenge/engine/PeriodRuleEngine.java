@@ -0,0 +1,330 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.PPeriod;
+import com.blackrock.challenge.model.QPeriod;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sweep-line engine for q and p period rules.
+ *
+ * All period starts and (end + 1) instants are sorted into one boundary list,
+ * which splits the timeline into elementary segments where the set of active
+ * periods is constant. Per segment:
+ * - q: a single sweep resolves the active period with the latest start (ties:
+ *   lowest input index)
+ * - p: each period is stored at no more than two nodes per level of a segment
+ *   tree over the segments, O(p log p) in all; the periods on one leaf-to-root
+ *   path are exactly the active ones
+ *
+ * Each lookup is then a binary search over the segments, so applying the rules to
+ * n expenses costs O(n * (log(q + p) + d + w / 64)), d being the number of
+ * overlapping p periods and w the spread of their input indices, instead of
+ * O(n * (q + p)). Extras are added one at a time in input order, exactly as the
+ * nested loop adds them, so results are bit for bit the same.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class PeriodRuleEngine {
+
+    private static final PeriodRuleEngine EMPTY = new PeriodRuleEngine(new long[0], new double[0], new int[0],
+            new int[1], new int[0], new double[0]);
+
+    private final long[] bounds;
+    private final double[] qFixed;
+    private final int[] qWinner;
+    /**
+     * Segment tree over the segments, leaves at [segments, 2 * segments): the p
+     * periods stored at node v are pNodes[pOffsets[v] .. pOffsets[v + 1]), ascending.
+     */
+    private final int[] pOffsets;
+    private final int[] pNodes;
+    private final double[] pExtra;
+
+    private PeriodRuleEngine(long[] bounds, double[] qFixed, int[] qWinner, int[] pOffsets, int[] pNodes,
+            double[] pExtra) {
+        this.bounds = bounds;
+        this.qFixed = qFixed;
+        this.qWinner = qWinner;
+        this.pOffsets = pOffsets;
+        this.pNodes = pNodes;
+        this.pExtra = pExtra;
+    }
+
+    public static PeriodRuleEngine empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compile q and p periods, converting their dates with the given parser.
+     */
+    public static PeriodRuleEngine compile(List<QPeriod> qPeriods, List<PPeriod> pPeriods,
+            ToLongFunction<String> epochParser) {
+        long[] qStart = new long[qPeriods.size()];
+        long[] qEnd = new long[qPeriods.size()];
+        double[] qFixed = new double[qPeriods.size()];
+        for (int j = 0; j < qPeriods.size(); j++) {
+            QPeriod q = qPeriods.get(j);
+            qStart[j] = epochParser.applyAsLong(q.getStart());
+            qEnd[j] = epochParser.applyAsLong(q.getEnd());
+            qFixed[j] = q.getFixed();
+        }
+
+        long[] pStart = new long[pPeriods.size()];
+        long[] pEnd = new long[pPeriods.size()];
+        double[] pExtra = new double[pPeriods.size()];
+        for (int j = 0; j < pPeriods.size(); j++) {
+            PPeriod p = pPeriods.get(j);
+            pStart[j] = epochParser.applyAsLong(p.getStart());
+            pEnd[j] = epochParser.applyAsLong(p.getEnd());
+            pExtra[j] = p.getExtra();
+        }
+
+        return compile(qStart, qEnd, qFixed, pStart, pEnd, pExtra);
+    }
+
+    /**
+     * Compile q and p periods given as epoch seconds with inclusive ends.
+     * Periods whose start is after their end never match and are ignored.
+     */
+    public static PeriodRuleEngine compile(long[] qStart, long[] qEnd, double[] qFixed,
+            long[] pStart, long[] pEnd, double[] pExtra) {
+        int qCount = qStart.length;
+        int pCount = pStart.length;
+        if (qCount == 0 && pCount == 0) {
+            return EMPTY;
+        }
+
+        long[] bounds = new long[2 * (qCount + pCount)];
+        int size = 0;
+        for (int j = 0; j < qCount; j++) {
+            if (qStart[j] <= qEnd[j]) {
+                bounds[size++] = qStart[j];
+                bounds[size++] = qEnd[j] + 1;
+            }
+        }
+        for (int j = 0; j < pCount; j++) {
+            if (pStart[j] <= pEnd[j]) {
+                bounds[size++] = pStart[j];
+                bounds[size++] = pEnd[j] + 1;
+            }
+        }
+        Arrays.sort(bounds, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || bounds[i] != bounds[unique - 1]) {
+                bounds[unique++] = bounds[i];
+            }
+        }
+        bounds = Arrays.copyOf(bounds, unique);
+
+        int[] qWinner = sweepQ(bounds, qStart, qEnd);
+        int[] pOffsets = new int[2 * unique + 1];
+        int[] pNodes = treeP(bounds, pStart, pEnd, pOffsets);
+
+        return new PeriodRuleEngine(bounds, qFixed.clone(), qWinner, pOffsets, pNodes, pExtra.clone());
+    }
+
+    /**
+     * Apply q (override) then p (stacked extras) rules to a remanent at the given instant.
+     */
+    public double apply(long epochSecond, double remanent) {
+        int segment = segmentOf(epochSecond);
+        return applyP(segment, applyQ(segment, remanent));
+    }
+
+    /**
+     * Elementary segment containing the instant, or -1 before the first boundary.
+     * Lets callers run the q and p steps as separate passes with one lookup.
+     */
+    public int segment(long epochSecond) {
+        return segmentOf(epochSecond);
+    }
+
+    /**
+     * The q step alone: the winning period's fixed amount replaces the remanent.
+     */
+    public double applyQ(int segment, double remanent) {
+        if (segment >= 0) {
+            int winner = qWinner[segment];
+            if (winner >= 0) {
+                return qFixed[winner];
+            }
+        }
+        return remanent;
+    }
+
+    /**
+     * The p step alone: adds the extra of every active p period, one at a time in
+     * input order.
+     */
+    public double applyP(int segment, double remanent) {
+        if (segment < 0) {
+            return remanent;
+        }
+        // Each active period sits in exactly one node of the path; usually only one
+        // node holds any, and its list is already in input order
+        int lists = 0;
+        int only = 0;
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        for (int v = segment + bounds.length; v > 0; v >>= 1) {
+            int from = pOffsets[v];
+            int to = pOffsets[v + 1];
+            if (from < to) {
+                lists++;
+                only = v;
+                min = Math.min(min, pNodes[from]);
+                max = Math.max(max, pNodes[to - 1]);
+            }
+        }
+        if (lists == 1) {
+            for (int i = pOffsets[only], end = pOffsets[only + 1]; i < end; i++) {
+                remanent += pExtra[pNodes[i]];
+            }
+        } else if (lists > 1) {
+            // Merge into input order through a bitmap over the indices involved
+            long[] marks = new long[((max - min) >>> 6) + 1];
+            for (int v = segment + bounds.length; v > 0; v >>= 1) {
+                for (int i = pOffsets[v], end = pOffsets[v + 1]; i < end; i++) {
+                    int bit = pNodes[i] - min;
+                    marks[bit >>> 6] |= 1L << bit;
+                }
+            }
+            for (int w = 0; w < marks.length; w++) {
+                for (long word = marks[w]; word != 0; word &= word - 1) {
+                    remanent += pExtra[min + (w << 6) + Long.numberOfTrailingZeros(word)];
+                }
+            }
+        }
+        return remanent;
+    }
+
+    /**
+     * Apply the rules to every entry of the given columns in place.
+     */
+    public void applyAll(long[] epochSeconds, double[] remanents, int count) {
+        for (int i = 0; i < count; i++) {
+            remanents[i] = apply(epochSeconds[i], remanents[i]);
+        }
+    }
+
+    private int segmentOf(long epochSecond) {
+        int lo = 0;
+        int hi = bounds.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] <= epochSecond) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Latest start wins. Periods are pushed onto a stack in start order, those
+     * sharing a start in descending index, so the top is the latest start with the
+     * lowest index. Expired periods are popped lazily from the top, which is safe
+     * because the sweep only moves forward in time.
+     */
+    private static int[] sweepQ(long[] bounds, long[] qStart, long[] qEnd) {
+        int[] winner = new int[bounds.length];
+        int[] byStart = validOrder(qStart, qEnd);
+        int[] stack = new int[byStart.length];
+        int top = 0;
+
+        int next = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            long b = bounds[i];
+            // Every start is a boundary, so this run is exactly the periods starting at b
+            int runEnd = next;
+            while (runEnd < byStart.length && qStart[byStart[runEnd]] <= b) {
+                runEnd++;
+            }
+            for (int j = runEnd - 1; j >= next; j--) {
+                stack[top++] = byStart[j];
+            }
+            next = runEnd;
+            while (top > 0 && qEnd[stack[top - 1]] < b) {
+                top--;
+            }
+            winner[i] = top == 0 ? -1 : stack[top - 1];
+        }
+        return winner;
+    }
+
+    /**
+     * Stores every valid p period, in input order, at the canonical nodes of its
+     * segment range in a bottom-up segment tree (at most two per level), as CSR
+     * lists: offsets[v] .. offsets[v + 1] index the returned array.
+     */
+    private static int[] treeP(long[] bounds, long[] pStart, long[] pEnd, int[] offsets) {
+        int n = bounds.length;
+        int[] lo = new int[pStart.length];
+        int[] hi = new int[pStart.length];
+        for (int j = 0; j < pStart.length; j++) {
+            if (pStart[j] <= pEnd[j]) {
+                // Both instants are boundaries: the period spans segments [lo, hi)
+                lo[j] = Arrays.binarySearch(bounds, pStart[j]) + n;
+                hi[j] = Arrays.binarySearch(bounds, pEnd[j] + 1) + n;
+            }
+        }
+        for (int j = 0; j < pStart.length; j++) {
+            for (int l = lo[j], r = hi[j]; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    offsets[l++ + 1]++;
+                }
+                if ((r & 1) == 1) {
+                    offsets[--r + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < 2 * n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] nodes = new int[offsets[2 * n]];
+        int[] fill = Arrays.copyOf(offsets, 2 * n);
+        for (int j = 0; j < pStart.length; j++) {
+            for (int l = lo[j], r = hi[j]; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    nodes[fill[l++]++] = j;
+                }
+                if ((r & 1) == 1) {
+                    nodes[fill[--r]++] = j;
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Indices of the periods with start <= end, ordered by start (ties by index).
+     */
+    private static int[] validOrder(long[] start, long[] end) {
+        long[] keys = new long[start.length];
+        int count = 0;
+        for (int j = 0; j < start.length; j++) {
+            if (start[j] <= end[j]) {
+                keys[count++] = start[j];
+            }
+        }
+        int[] valid = new int[count];
+        int k = 0;
+        for (int j = 0; j < start.length; j++) {
+            if (start[j] <= end[j]) {
+                valid[k++] = j;
+            }
+        }
+        int[] order = PrimitiveSort.orderBy(keys, count);
+        for (int i = 0; i < count; i++) {
+            order[i] = valid[order[i]];
+        }
+        return order;
+    }
+}
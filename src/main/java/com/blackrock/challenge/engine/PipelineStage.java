@@ -0,0 +1,22 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Stages of a filter / returns request, in execution order, as reported to a
+ * {@link StageListener}.
+ */
+public enum PipelineStage {
+    /** JSON request body → columnar batch. */
+    PARSE,
+    /** Amount and timestamp checks. */
+    VALIDATE,
+    /** Repeated timestamps among the valid rows. */
+    DEDUP,
+    /** Ceiling/remanent, rule segment lookup and q overrides. */
+    Q,
+    /** Stacked p extras. */
+    P,
+    /** Savings per k-period. */
+    K,
+    /** Growth, profit and tax benefit per k-period. */
+    RETURNS
+}
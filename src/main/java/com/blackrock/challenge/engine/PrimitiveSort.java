@@ -0,0 +1,65 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Sorting helpers over primitive columns, without boxing.
+ */
+public final class PrimitiveSort {
+
+    private static final int INSERTION_THRESHOLD = 32;
+
+    private PrimitiveSort() {
+    }
+
+    /**
+     * Stable ordering of row indices {@code 0..count-1} by ascending key.
+     * Bottom-up merge sort: O(n log n), two int[] buffers, no per-row allocation.
+     */
+    public static int[] orderBy(long[] keys, int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        if (count < 2) {
+            return order;
+        }
+
+        // Insertion-sort small runs first
+        for (int runStart = 0; runStart < count; runStart += INSERTION_THRESHOLD) {
+            int runEnd = Math.min(runStart + INSERTION_THRESHOLD, count);
+            for (int i = runStart + 1; i < runEnd; i++) {
+                int row = order[i];
+                long key = keys[row];
+                int j = i - 1;
+                while (j >= runStart && keys[order[j]] > key) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = row;
+            }
+        }
+
+        int[] buffer = new int[count];
+        for (int width = INSERTION_THRESHOLD; width < count; width *= 2) {
+            for (int left = 0; left < count; left += 2 * width) {
+                int mid = Math.min(left + width, count);
+                int right = Math.min(left + 2 * width, count);
+                int i = left;
+                int j = mid;
+                int k = left;
+                while (i < mid && j < right) {
+                    buffer[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < right) {
+                    buffer[k++] = order[j++];
+                }
+            }
+            int[] swap = order;
+            order = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,106 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.TransactionBatch;
+
+import java.util.stream.IntStream;
+
+/**
+ * Per-row outcome of {@link SavingsPipeline}: a status code for every input row,
+ * and ceiling / rule-adjusted remanent for the valid ones, all as primitive columns.
+ */
+public final class ProcessedBatch {
+
+    public static final byte VALID = 0;
+    public static final byte NEGATIVE_AMOUNT = 1;
+    public static final byte AMOUNT_TOO_LARGE = 2;
+    public static final byte DATE_MISSING = 3;
+    public static final byte DATE_INVALID = 4;
+    public static final byte DUPLICATE = 5;
+
+    private final TransactionBatch batch;
+    private final byte[] status;
+    private final double[] ceilings;
+    private final double[] remanents;
+    private final int[] validRows;
+    private final int validCount;
+
+    ProcessedBatch(TransactionBatch batch, byte[] status, double[] ceilings, double[] remanents,
+            int[] validRows, int validCount) {
+        this.batch = batch;
+        this.status = status;
+        this.ceilings = ceilings;
+        this.remanents = remanents;
+        this.validRows = validRows;
+        this.validCount = validCount;
+    }
+
+    public TransactionBatch batch() {
+        return batch;
+    }
+
+    public int size() {
+        return status.length;
+    }
+
+    public byte status(int row) {
+        return status[row];
+    }
+
+    public double ceiling(int row) {
+        return ceilings[row];
+    }
+
+    public double remanent(int row) {
+        return remanents[row];
+    }
+
+    public int validCount() {
+        return validCount;
+    }
+
+    /**
+     * Input row index of the i-th valid row (input order).
+     */
+    public int validRow(int i) {
+        return validRows[i];
+    }
+
+    /**
+     * Number of rows per status, indexed by the status codes above.
+     */
+    public int[] statusCounts() {
+        int[] counts = new int[DUPLICATE + 1];
+        for (byte rowStatus : status) {
+            counts[rowStatus]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Sum of amounts over valid rows, in input order (same compensated summation as DoubleStream.sum).
+     */
+    public double totalAmount() {
+        return IntStream.range(0, validCount).mapToDouble(i -> batch.amount(validRows[i])).sum();
+    }
+
+    /**
+     * Sum of ceilings over valid rows, in input order.
+     */
+    public double totalCeiling() {
+        return IntStream.range(0, validCount).mapToDouble(i -> ceilings[validRows[i]]).sum();
+    }
+
+    /**
+     * Epoch-sorted prefix sums over the remanents of the valid rows.
+     */
+    public RemanentPrefixSums prefixSums() {
+        long[] epochs = new long[validCount];
+        double[] values = new double[validCount];
+        for (int i = 0; i < validCount; i++) {
+            int row = validRows[i];
+            epochs[i] = batch.epochSecond(row);
+            values[i] = remanents[row];
+        }
+        return RemanentPrefixSums.build(epochs, values, validCount);
+    }
+}
@@ -0,0 +1,37 @@
+package com.blackrock.challenge.engine;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Splits [from, to) in halves down to {@code grain} indexes, then runs the body inline.
+ */
+final class RangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+    private final int grain;
+    // Tasks only run in-process; ForkJoinTask is Serializable but these never are
+    private final transient IntConsumer body;
+
+    RangeTask(int from, int to, int grain, IntConsumer body) {
+        this.from = from;
+        this.to = to;
+        this.grain = grain;
+        this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= grain) {
+            for (int i = from; i < to; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new RangeTask(from, mid, grain, body), new RangeTask(mid, to, grain, body));
+    }
+}
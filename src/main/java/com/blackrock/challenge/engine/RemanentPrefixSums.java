@@ -0,0 +1,82 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Epoch-sorted prefix sums over remanents.
+ *
+ * Built once per request in O(n log n); the sum over any inclusive time range is
+ * then two binary searches and a subtraction. Prefixes carry a compensation term
+ * (Neumaier) so range differences stay accurate on long fractional histories.
+ */
+public final class RemanentPrefixSums {
+
+    private final long[] epochs;
+    private final double[] prefix;
+    private final double[] compensation;
+
+    private RemanentPrefixSums(long[] epochs, double[] prefix, double[] compensation) {
+        this.epochs = epochs;
+        this.prefix = prefix;
+        this.compensation = compensation;
+    }
+
+    /**
+     * Build from the first {@code count} entries of parallel epoch/remanent columns.
+     * The columns are not modified.
+     */
+    public static RemanentPrefixSums build(long[] epochSeconds, double[] remanents, int count) {
+        int[] order = PrimitiveSort.orderBy(epochSeconds, count);
+        long[] epochs = new long[count];
+        double[] prefix = new double[count + 1];
+        double[] compensation = new double[count + 1];
+
+        double sum = 0;
+        double c = 0;
+        for (int i = 0; i < count; i++) {
+            int row = order[i];
+            epochs[i] = epochSeconds[row];
+            double x = remanents[row];
+            double t = sum + x;
+            c += Math.abs(sum) >= Math.abs(x) ? (sum - t) + x : (x - t) + sum;
+            sum = t;
+            prefix[i + 1] = sum;
+            compensation[i + 1] = c;
+        }
+        return new RemanentPrefixSums(epochs, prefix, compensation);
+    }
+
+    public int size() {
+        return epochs.length;
+    }
+
+    /**
+     * Sum of remanents with start <= epoch <= end.
+     */
+    public double sum(long start, long end) {
+        if (start > end) {
+            return 0;
+        }
+        int lo = lowerBound(start);
+        int hi = lowerBound(end + 1);
+        if (lo >= hi) {
+            return 0;
+        }
+        return (prefix[hi] - prefix[lo]) + (compensation[hi] - compensation[lo]);
+    }
+
+    /**
+     * First position whose epoch is >= key.
+     */
+    private int lowerBound(long key) {
+        int lo = 0;
+        int hi = epochs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochs[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,114 @@
+package com.blackrock.challenge.engine;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Monte Carlo distribution of growth multipliers until retirement.
+ *
+ * Every path draws one return and one inflation figure per year, both lognormal
+ * with the given mean and volatility, and yields two multipliers: nominal growth
+ * prod(1 + r) and real growth prod(1 + r) / prod(1 + i). A k period's corpus on a
+ * path is its savings times the path's multiplier, so the paths never see the
+ * transactions: cost is paths × years however many rows produced the k sums.
+ *
+ * Paths run in fixed chunks on a ForkJoinPool. Each chunk gets its own
+ * SplittableRandom, split from the seed in chunk order before any work is forked,
+ * so the same seed gives the same distribution regardless of scheduling or pool size.
+ */
+public final class ReturnSimulator {
+
+    /** Paths drawn by one leaf task; also the unit random streams are assigned to. */
+    private static final int CHUNK_PATHS = 1024;
+
+    private ReturnSimulator() {
+    }
+
+    /** Sorted multipliers of all paths. */
+    public record Distribution(double[] nominal, double[] real) {
+
+        public int paths() {
+            return nominal.length;
+        }
+
+        public double nominal(double percentile) {
+            return percentile(nominal, percentile);
+        }
+
+        public double real(double percentile) {
+            return percentile(real, percentile);
+        }
+    }
+
+    /**
+     * @param rate                mean annual return (0.0711 = 7.11%)
+     * @param volatility          standard deviation of the annual return
+     * @param inflation           mean annual inflation
+     * @param inflationVolatility standard deviation of annual inflation
+     * @param years               years until retirement; none drawn when not positive
+     */
+    public static Distribution simulate(double rate, double volatility, double inflation,
+            double inflationVolatility, int years, int paths, long seed, ForkJoinPool pool) {
+        if (paths < 1) {
+            throw new IllegalArgumentException("A simulation needs at least one path");
+        }
+        if (!(volatility >= 0) || !(inflationVolatility >= 0) || rate <= -1 || inflation <= -1) {
+            throw new IllegalArgumentException("Invalid return model: rate " + rate + " ± " + volatility
+                    + ", inflation " + inflation + " ± " + inflationVolatility);
+        }
+        // log(1 + x) ~ N(mu, sigma²) with E[1 + x] = 1 + mean and Var[1 + x] = volatility²
+        double[] returnLog = logNormal(rate, volatility);
+        double[] inflationLog = logNormal(inflation, inflationVolatility);
+
+        int chunks = (paths + CHUNK_PATHS - 1) / CHUNK_PATHS;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            streams[c] = root.split();
+        }
+
+        double[] nominal = new double[paths];
+        double[] real = new double[paths];
+        int drawnYears = Math.max(years, 0);
+        pool.invoke(new RangeTask(0, chunks, 1, chunk -> {
+            SplittableRandom random = streams[chunk];
+            int to = Math.min(paths, (chunk + 1) * CHUNK_PATHS);
+            for (int path = chunk * CHUNK_PATHS; path < to; path++) {
+                double logGrowth = 0;
+                double logInflation = 0;
+                for (int y = 0; y < drawnYears; y++) {
+                    logGrowth += returnLog[0] + returnLog[1] * random.nextGaussian();
+                    logInflation += inflationLog[0] + inflationLog[1] * random.nextGaussian();
+                }
+                nominal[path] = Math.exp(logGrowth);
+                real[path] = Math.exp(logGrowth - logInflation);
+            }
+        }));
+
+        Arrays.sort(nominal);
+        Arrays.sort(real);
+        return new Distribution(nominal, real);
+    }
+
+    /**
+     * Linearly interpolated percentile (0-100) of an ascending array.
+     */
+    public static double percentile(double[] sorted, double percentile) {
+        double position = percentile / 100 * (sorted.length - 1);
+        int below = (int) Math.floor(position);
+        if (below >= sorted.length - 1) {
+            return sorted[sorted.length - 1];
+        }
+        return sorted[below] + (position - below) * (sorted[below + 1] - sorted[below]);
+    }
+
+    /**
+     * {mu, sigma} of log(1 + x) for a lognormal 1 + x with the given mean and deviation.
+     */
+    private static double[] logNormal(double mean, double deviation) {
+        double relative = deviation / (1 + mean);
+        double sigmaSquared = Math.log1p(relative * relative);
+        return new double[] { Math.log1p(mean) - sigmaSquared / 2, Math.sqrt(sigmaSquared) };
+    }
+}
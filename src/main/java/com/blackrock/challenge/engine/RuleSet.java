@@ -0,0 +1,117 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.KPeriod;
+import com.blackrock.challenge.model.PPeriod;
+import com.blackrock.challenge.model.QPeriod;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pre-parsed, indexed snapshot of a q/p/k rule set.
+ *
+ * Compiled once, either per request from inline periods or at registration time
+ * for rule sets referenced by id. Period definitions are defensively copied, so a
+ * snapshot never changes after construction and can be read from any thread.
+ */
+public final class RuleSet {
+
+    private static final DateTimeFormatter STRICT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DateTimeFormatter LENIENT_FORMATTER = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .toFormatter()
+            .withResolverStyle(ResolverStyle.LENIENT);
+
+    private static final RuleSet EMPTY = compile(null, null, null);
+
+    private final List<QPeriod> q;
+    private final List<PPeriod> p;
+    private final List<KPeriod> k;
+    private final PeriodRuleEngine rules;
+    private final KPeriodIndex kIndex;
+
+    private RuleSet(List<QPeriod> q, List<PPeriod> p, List<KPeriod> k, PeriodRuleEngine rules, KPeriodIndex kIndex) {
+        this.q = q;
+        this.p = p;
+        this.k = k;
+        this.rules = rules;
+        this.kIndex = kIndex;
+    }
+
+    public static RuleSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parse and index the given periods. Null lists are treated as empty.
+     * Period dates are parsed leniently (e.g. "2023-11-31" rolls over to December 1st).
+     */
+    public static RuleSet compile(List<QPeriod> qPeriods, List<PPeriod> pPeriods, List<KPeriod> kPeriods) {
+        List<QPeriod> q = new ArrayList<>();
+        if (qPeriods != null) {
+            for (QPeriod period : qPeriods) {
+                q.add(new QPeriod(period.getStart(), period.getEnd(), period.getFixed()));
+            }
+        }
+        List<PPeriod> p = new ArrayList<>();
+        if (pPeriods != null) {
+            for (PPeriod period : pPeriods) {
+                p.add(new PPeriod(period.getStart(), period.getEnd(), period.getExtra()));
+            }
+        }
+        List<KPeriod> k = new ArrayList<>();
+        if (kPeriods != null) {
+            for (KPeriod period : kPeriods) {
+                k.add(new KPeriod(period.getStart(), period.getEnd()));
+            }
+        }
+
+        PeriodRuleEngine rules = PeriodRuleEngine.compile(q, p, RuleSet::parseLenientEpoch);
+        KPeriodIndex kIndex = KPeriodIndex.compile(k, RuleSet::parseLenientEpoch);
+        return new RuleSet(List.copyOf(q), List.copyOf(p), List.copyOf(k), rules, kIndex);
+    }
+
+    public List<QPeriod> getQ() {
+        return q;
+    }
+
+    public List<PPeriod> getP() {
+        return p;
+    }
+
+    public List<KPeriod> getK() {
+        return k;
+    }
+
+    public PeriodRuleEngine rules() {
+        return rules;
+    }
+
+    public KPeriodIndex kIndex() {
+        return kIndex;
+    }
+
+    /**
+     * Fixed-width bounds take the allocation-free path; anything else (e.g. negative
+     * years) goes through the formatter, which also reports genuinely bad input.
+     */
+    private static long parseLenientEpoch(String dateStr) {
+        long epochSecond = TimestampParser.parseLenient(dateStr);
+        if (!TimestampParser.isError(epochSecond)) {
+            return epochSecond;
+        }
+        LocalDateTime dateTime;
+        try {
+            dateTime = LocalDateTime.parse(dateStr, LENIENT_FORMATTER);
+        } catch (Exception e) {
+            dateTime = LocalDateTime.parse(dateStr, STRICT_FORMATTER);
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+}
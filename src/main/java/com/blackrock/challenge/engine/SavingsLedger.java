@@ -0,0 +1,128 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.TransactionBatch;
+
+/**
+ * Append-only savings history of one user against a fixed rule set.
+ *
+ * Keeps everything a returns calculation needs as running state: the set of seen
+ * timestamps for dedup, the totals, and per-k-period sums in a {@link KPeriodTotals}.
+ * Appending an expense costs one hash probe, one q/p rule lookup and O(log k) tree
+ * updates, independent of how much history the ledger already holds; reading the
+ * totals never rescans history.
+ *
+ * Rows follow the same rules as {@link SavingsPipeline}: a duplicate is a timestamp
+ * already in the ledger or earlier in the same append. Methods are synchronized, so
+ * one ledger can be shared between request threads.
+ */
+public final class SavingsLedger {
+
+    /** Point-in-time copy of a ledger's running state. */
+    public record State(double totalAmount, double totalCeiling, double[] kTree, long[] dates) {
+    }
+
+    private final RuleSet ruleSet;
+    private LongHashSet seenDates = new LongHashSet(64);
+    private final KPeriodTotals kTotals;
+    private double totalAmount;
+    private double totalCeiling;
+
+    public SavingsLedger(RuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+        this.kTotals = new KPeriodTotals(ruleSet.kIndex());
+    }
+
+    public RuleSet ruleSet() {
+        return ruleSet;
+    }
+
+    /**
+     * Validate, dedup and enrich the rows of the batch, then add the valid ones to
+     * the running totals. Returns the per-row outcome, as the pipeline would.
+     */
+    public synchronized ProcessedBatch append(TransactionBatch batch) {
+        int size = batch.size();
+        byte[] status = new byte[size];
+        double[] ceilings = new double[size];
+        double[] remanents = new double[size];
+        int[] validRows = new int[size];
+        int validCount = 0;
+        PeriodRuleEngine rules = ruleSet.rules();
+
+        for (int row = 0; row < size; row++) {
+            status[row] = SavingsPipeline.validate(batch, row);
+            if (status[row] != ProcessedBatch.VALID) {
+                continue;
+            }
+            long epochSecond = batch.epochSecond(row);
+            if (!seenDates.add(epochSecond)) {
+                status[row] = ProcessedBatch.DUPLICATE;
+                continue;
+            }
+            double amount = batch.amount(row);
+            double ceiling = SavingsPipeline.computeCeiling(amount);
+            double remanent = rules.apply(epochSecond, ceiling - amount);
+            ceilings[row] = ceiling;
+            remanents[row] = remanent;
+            validRows[validCount++] = row;
+
+            totalAmount += amount;
+            totalCeiling += ceiling;
+            kTotals.add(epochSecond, remanent);
+        }
+        return new ProcessedBatch(batch, status, ceilings, remanents, validRows, validCount);
+    }
+
+    /**
+     * Re-apply a row that was accepted before (e.g. from a journal). Rows whose
+     * timestamp the ledger already holds are skipped, so replaying a row that a
+     * restored snapshot already covers is harmless.
+     */
+    public synchronized void restore(long epochSecond, double amount) {
+        if (!seenDates.add(epochSecond)) {
+            return;
+        }
+        double ceiling = SavingsPipeline.computeCeiling(amount);
+        totalAmount += amount;
+        totalCeiling += ceiling;
+        kTotals.add(epochSecond, ruleSet.rules().apply(epochSecond, ceiling - amount));
+    }
+
+    public synchronized State state() {
+        return new State(totalAmount, totalCeiling, kTotals.tree(), seenDates.toArray());
+    }
+
+    /**
+     * Load a snapshot into an empty ledger with the same rule set.
+     */
+    public synchronized void load(State state) {
+        if (seenDates.size() > 0) {
+            throw new IllegalStateException("Snapshots can only be loaded into an empty ledger");
+        }
+        kTotals.load(state.kTree());
+        seenDates = new LongHashSet(state.dates().length);
+        for (long epochSecond : state.dates()) {
+            seenDates.add(epochSecond);
+        }
+        totalAmount = state.totalAmount();
+        totalCeiling = state.totalCeiling();
+    }
+
+    /** Number of valid transactions in the ledger. */
+    public synchronized int size() {
+        return seenDates.size();
+    }
+
+    public synchronized double totalAmount() {
+        return totalAmount;
+    }
+
+    public synchronized double totalCeiling() {
+        return totalCeiling;
+    }
+
+    /** Savings per k period, in k period order. */
+    public synchronized double[] kSums() {
+        return kTotals.sums();
+    }
+}
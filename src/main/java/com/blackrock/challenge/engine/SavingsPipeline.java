@@ -0,0 +1,251 @@
+package com.blackrock.challenge.engine;
+
+import com.blackrock.challenge.model.TransactionBatch;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/**
+ * Shared validate → dedup → ceiling/remanent → q → p pipeline behind filter and returns.
+ *
+ * Runs over a columnar {@link TransactionBatch} and writes primitive result
+ * columns; callers turn those into their own response shapes.
+ *
+ * Batches of at least {@code parallelThreshold} rows are partitioned across a
+ * ForkJoinPool. Both modes produce identical columns. Each stage is a separate pass,
+ * so an optional {@link StageListener} can be told how long each one took.
+ */
+public final class SavingsPipeline {
+
+    public static final double MAX_AMOUNT = 500000;
+
+    /** Default row count from which {@link #process(TransactionBatch, RuleSet)} goes parallel. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+
+    /** Rows handled by one leaf task in the row-wise phases. */
+    private static final int CHUNK_SIZE = 4096;
+
+    private SavingsPipeline() {
+    }
+
+    /**
+     * Round up to next multiple of 100. If already a multiple, return as-is.
+     */
+    public static double computeCeiling(double amount) {
+        double remainder = amount % 100;
+        if (remainder == 0)
+            return amount;
+        return amount + (100 - remainder);
+    }
+
+    public static ProcessedBatch process(TransactionBatch batch, RuleSet ruleSet) {
+        return process(batch, ruleSet, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Validate every row, enrich the valid ones and apply the rule set's q/p rules.
+     * A duplicate is any valid row whose timestamp (epoch second) repeats an earlier
+     * valid row; the first occurrence in input order wins.
+     *
+     * Runs inline below {@code parallelThreshold} rows (or on a single-threaded pool),
+     * otherwise in parallel on the common ForkJoinPool.
+     */
+    public static ProcessedBatch process(TransactionBatch batch, RuleSet ruleSet, int parallelThreshold) {
+        return process(batch, ruleSet, parallelThreshold, StageListener.NONE);
+    }
+
+    /**
+     * As above, reporting the time spent in the validate, dedup, q and p stages.
+     */
+    public static ProcessedBatch process(TransactionBatch batch, RuleSet ruleSet, int parallelThreshold,
+            StageListener listener) {
+        return process(batch, ruleSet, parallelThreshold, ForkJoinPool.commonPool(), listener);
+    }
+
+    public static ProcessedBatch process(TransactionBatch batch, RuleSet ruleSet, int parallelThreshold,
+            ForkJoinPool pool) {
+        return process(batch, ruleSet, parallelThreshold, pool, StageListener.NONE);
+    }
+
+    public static ProcessedBatch process(TransactionBatch batch, RuleSet ruleSet, int parallelThreshold,
+            ForkJoinPool pool, StageListener listener) {
+        if (batch.size() < parallelThreshold || pool.getParallelism() < 2) {
+            return processInline(batch, ruleSet, listener);
+        }
+        return processParallel(batch, ruleSet, pool, listener);
+    }
+
+    /**
+     * One pass per stage over primitive columns: validate all rows, dedup the valid
+     * ones (collecting them in input order), then the q pass and the p pass over the
+     * survivors.
+     */
+    private static ProcessedBatch processInline(TransactionBatch batch, RuleSet ruleSet, StageListener listener) {
+        int size = batch.size();
+        byte[] status = new byte[size];
+        double[] ceilings = new double[size];
+        double[] remanents = new double[size];
+        int[] validRows = new int[size];
+        int validCount = 0;
+        PeriodRuleEngine rules = ruleSet.rules();
+
+        long start = System.nanoTime();
+        for (int row = 0; row < size; row++) {
+            status[row] = validate(batch, row);
+        }
+        start = lap(listener, PipelineStage.VALIDATE, start);
+
+        LongHashSet seenDates = new LongHashSet(size);
+        for (int row = 0; row < size; row++) {
+            if (status[row] != ProcessedBatch.VALID) {
+                continue;
+            }
+            if (!seenDates.add(batch.epochSecond(row))) {
+                status[row] = ProcessedBatch.DUPLICATE;
+                continue;
+            }
+            validRows[validCount++] = row;
+        }
+        start = lap(listener, PipelineStage.DEDUP, start);
+
+        int[] segments = new int[size];
+        for (int i = 0; i < validCount; i++) {
+            applyQ(batch, validRows[i], rules, segments, ceilings, remanents);
+        }
+        start = lap(listener, PipelineStage.Q, start);
+
+        for (int i = 0; i < validCount; i++) {
+            int row = validRows[i];
+            remanents[row] = rules.applyP(segments[row], remanents[row]);
+        }
+        lap(listener, PipelineStage.P, start);
+
+        return new ProcessedBatch(batch, status, ceilings, remanents, validRows, validCount);
+    }
+
+    /**
+     * Parallel variant of the same stages:
+     * 1. validate rows in parallel chunks
+     * 2. hash-partition the valid rows by epoch second, keeping input order inside each
+     *    partition, and dedup the partitions in parallel — equal timestamps always share a
+     *    partition, so "first in input order wins" holds exactly as inline; then collect
+     *    the surviving row indexes in input order
+     * 3. q pass, then p pass, over the surviving rows in parallel chunks
+     */
+    private static ProcessedBatch processParallel(TransactionBatch batch, RuleSet ruleSet, ForkJoinPool pool,
+            StageListener listener) {
+        int size = batch.size();
+        byte[] status = new byte[size];
+        double[] ceilings = new double[size];
+        double[] remanents = new double[size];
+        PeriodRuleEngine rules = ruleSet.rules();
+
+        long start = System.nanoTime();
+        forEachChunk(pool, size, row -> status[row] = validate(batch, row));
+        start = lap(listener, PipelineStage.VALIDATE, start);
+
+        int partitionBits = 32 - Integer.numberOfLeadingZeros(pool.getParallelism() * 4 - 1);
+        int partitions = 1 << partitionBits;
+        int[] partitionStart = new int[partitions + 1];
+        int[] partitionOf = new int[size];
+        for (int row = 0; row < size; row++) {
+            if (status[row] == ProcessedBatch.VALID) {
+                int partition = partitionOf(batch.epochSecond(row), partitionBits);
+                partitionOf[row] = partition;
+                partitionStart[partition + 1]++;
+            }
+        }
+        for (int i = 0; i < partitions; i++) {
+            partitionStart[i + 1] += partitionStart[i];
+        }
+        int[] partitioned = new int[partitionStart[partitions]];
+        int[] fill = partitionStart.clone();
+        for (int row = 0; row < size; row++) {
+            if (status[row] == ProcessedBatch.VALID) {
+                partitioned[fill[partitionOf[row]]++] = row;
+            }
+        }
+        pool.invoke(new RangeTask(0, partitions, 1, partition -> {
+            int from = partitionStart[partition];
+            int to = partitionStart[partition + 1];
+            LongHashSet seenDates = new LongHashSet(to - from);
+            for (int i = from; i < to; i++) {
+                int row = partitioned[i];
+                if (!seenDates.add(batch.epochSecond(row))) {
+                    status[row] = ProcessedBatch.DUPLICATE;
+                }
+            }
+        }));
+
+        int[] validRows = new int[size];
+        int validCount = 0;
+        for (int row = 0; row < size; row++) {
+            if (status[row] == ProcessedBatch.VALID) {
+                validRows[validCount++] = row;
+            }
+        }
+        start = lap(listener, PipelineStage.DEDUP, start);
+
+        int[] segments = new int[size];
+        forEachChunk(pool, validCount, i -> applyQ(batch, validRows[i], rules, segments, ceilings, remanents));
+        start = lap(listener, PipelineStage.Q, start);
+
+        forEachChunk(pool, validCount, i -> {
+            int row = validRows[i];
+            remanents[row] = rules.applyP(segments[row], remanents[row]);
+        });
+        lap(listener, PipelineStage.P, start);
+
+        return new ProcessedBatch(batch, status, ceilings, remanents, validRows, validCount);
+    }
+
+    static byte validate(TransactionBatch batch, int row) {
+        double amount = batch.amount(row);
+        long epochSecond = batch.epochSecond(row);
+        if (amount < 0) {
+            return ProcessedBatch.NEGATIVE_AMOUNT;
+        }
+        if (amount >= MAX_AMOUNT) {
+            return ProcessedBatch.AMOUNT_TOO_LARGE;
+        }
+        if (epochSecond == TimestampParser.ERR_MISSING) {
+            return ProcessedBatch.DATE_MISSING;
+        }
+        if (TimestampParser.isError(epochSecond)) {
+            return ProcessedBatch.DATE_INVALID;
+        }
+        return ProcessedBatch.VALID;
+    }
+
+    /**
+     * Ceiling and remanent for a valid row, then the q override; remembers the row's
+     * rule segment for the p pass.
+     */
+    private static void applyQ(TransactionBatch batch, int row, PeriodRuleEngine rules, int[] segments,
+            double[] ceilings, double[] remanents) {
+        double amount = batch.amount(row);
+        double ceiling = computeCeiling(amount);
+        int segment = rules.segment(batch.epochSecond(row));
+        ceilings[row] = ceiling;
+        segments[row] = segment;
+        remanents[row] = rules.applyQ(segment, ceiling - amount);
+    }
+
+    /**
+     * Report the time since {@code start} for a stage and return the new start.
+     */
+    private static long lap(StageListener listener, PipelineStage stage, long start) {
+        long now = System.nanoTime();
+        listener.stage(stage, now - start);
+        return now;
+    }
+
+    private static int partitionOf(long epochSecond, int bits) {
+        // Fibonacci hashing: consecutive seconds spread evenly over the partitions
+        return (int) ((epochSecond * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    private static void forEachChunk(ForkJoinPool pool, int size, IntConsumer body) {
+        pool.invoke(new RangeTask(0, size, CHUNK_SIZE, body));
+    }
+}
@@ -0,0 +1,27 @@
+package com.blackrock.challenge.engine;
+
+/**
+ * Receives the wall time spent in each {@link PipelineStage}. Called once per stage
+ * per request from the request thread; implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface StageListener {
+
+    StageListener NONE = (stage, nanos) -> {
+    };
+
+    void stage(PipelineStage stage, long nanos);
+
+    /**
+     * This listener, then {@code next}, for every stage.
+     */
+    default StageListener andThen(StageListener next) {
+        if (next == NONE) {
+            return this;
+        }
+        return (stage, nanos) -> {
+            stage(stage, nanos);
+            next.stage(stage, nanos);
+        };
+    }
+}
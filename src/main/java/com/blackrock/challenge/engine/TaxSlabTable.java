@@ -0,0 +1,99 @@
+package com.blackrock.challenge.engine;
+
+import java.util.Arrays;
+
+/**
+ * Progressive tax regime as a slab table.
+ *
+ * Slab i taxes the part of the income above {@code lowerBounds[i]} (up to the next
+ * bound) at {@code rates[i]}. The tax owed at every lower bound is precomputed, so
+ * tax(income) is one binary search for the slab plus one multiply-add, independent
+ * of the number of slabs. Income at or below the first bound pays nothing.
+ */
+public final class TaxSlabTable {
+
+    private final double[] lowerBounds;
+    private final double[] rates;
+    private final double[] taxAtBound;
+
+    private TaxSlabTable(double[] lowerBounds, double[] rates, double[] taxAtBound) {
+        this.lowerBounds = lowerBounds;
+        this.rates = rates;
+        this.taxAtBound = taxAtBound;
+    }
+
+    /**
+     * @param lowerBounds strictly increasing slab lower bounds
+     * @param rates       marginal rate of each slab (0.10 = 10%)
+     */
+    public static TaxSlabTable of(double[] lowerBounds, double[] rates) {
+        if (lowerBounds.length == 0 || lowerBounds.length != rates.length) {
+            throw new IllegalArgumentException("A tax regime needs one rate per slab and at least one slab");
+        }
+        double[] taxAtBound = new double[lowerBounds.length];
+        for (int i = 0; i < lowerBounds.length; i++) {
+            if (!Double.isFinite(lowerBounds[i]) || !Double.isFinite(rates[i]) || rates[i] < 0) {
+                throw new IllegalArgumentException("Invalid tax slab " + i + ": from " + lowerBounds[i]
+                        + " at rate " + rates[i]);
+            }
+            if (i > 0) {
+                if (lowerBounds[i] <= lowerBounds[i - 1]) {
+                    throw new IllegalArgumentException("Tax slab bounds must be strictly increasing");
+                }
+                taxAtBound[i] = taxAtBound[i - 1] + (lowerBounds[i] - lowerBounds[i - 1]) * rates[i - 1];
+            }
+        }
+        return new TaxSlabTable(lowerBounds.clone(), rates.clone(), taxAtBound);
+    }
+
+    public double tax(double income) {
+        int slab = slabOf(income);
+        if (slab < 0) {
+            return 0.0;
+        }
+        return taxAtBound[slab] + (income - lowerBounds[slab]) * rates[slab];
+    }
+
+    /**
+     * Bulk variant: {@code out[i] = tax(incomes[i])} for the first {@code count} incomes.
+     */
+    public void taxAll(double[] incomes, double[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = tax(incomes[i]);
+        }
+    }
+
+    public int size() {
+        return lowerBounds.length;
+    }
+
+    public double lowerBound(int slab) {
+        return lowerBounds[slab];
+    }
+
+    public double rate(int slab) {
+        return rates[slab];
+    }
+
+    /**
+     * Last slab whose lower bound lies strictly below the income, or -1.
+     */
+    private int slabOf(double income) {
+        int low = 0;
+        int high = lowerBounds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lowerBounds[mid] < income) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    @Override
+    public String toString() {
+        return "TaxSlabTable" + Arrays.toString(lowerBounds) + "@" + Arrays.toString(rates);
+    }
+}
@@ -0,0 +1,208 @@
+package com.blackrock.challenge.engine;
+
+import java.nio.CharBuffer;
+
+/**
+ * Allocation-free parser for the fixed {@code yyyy-MM-dd HH:mm:ss} layout.
+ *
+ * Returns epoch seconds (UTC) as a primitive long. Failures are reported as
+ * reserved sentinel values below any representable instant instead of exceptions;
+ * test them with {@link #isError(long)}.
+ *
+ * Resolution matches the java.time formatters previously used by the services:
+ * - strict: SMART resolution of {@code DateTimeFormatter.ofPattern(...)} — day 29-31 clamps
+ *   to the end of the month, 24:00:00 rolls over to the next day, year 0000 is rejected
+ * - lenient: LENIENT resolution — every field overflows into the next larger one
+ *   (e.g. 2023-11-31 becomes 2023-12-01)
+ *
+ * Strict parsing also takes years past 9999 in the form the formatter accepts: a '+'
+ * and 5 to 9 digits ({@code +12023-01-01 00:00:00}).
+ */
+public final class TimestampParser {
+
+    /** Date is null or empty. */
+    public static final long ERR_MISSING = Long.MIN_VALUE;
+
+    /** Date does not follow the yyyy-MM-dd HH:mm:ss layout. */
+    public static final long ERR_FORMAT = Long.MIN_VALUE + 1;
+
+    /** Layout is right but a field is out of range (e.g. month 13, minute 60). */
+    public static final long ERR_RANGE = Long.MIN_VALUE + 2;
+
+    private static final int LENGTH = 19;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    /** Largest year java.time represents. */
+    private static final long MAX_YEAR = 999_999_999;
+
+    private TimestampParser() {
+    }
+
+    public static boolean isError(long result) {
+        return result <= ERR_RANGE;
+    }
+
+    /**
+     * Parse with strict (SMART) resolution, as used for expense dates.
+     */
+    public static long parseStrict(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return ERR_MISSING;
+        }
+        if (text.charAt(0) == '+') {
+            return parseExtendedYear(text);
+        }
+        if (text.length() != LENGTH || !hasLayout(text)) {
+            return ERR_FORMAT;
+        }
+        return resolveStrict(number4(text, 0), number2(text, 5), number2(text, 8),
+                number2(text, 11), number2(text, 14), number2(text, 17));
+    }
+
+    /**
+     * Strict parse over a character buffer slice (e.g. a streaming parser's text buffer).
+     */
+    public static long parseStrict(char[] buffer, int offset, int length) {
+        if (length == 0) {
+            return ERR_MISSING;
+        }
+        if (buffer[offset] == '+') {
+            return parseExtendedYear(CharBuffer.wrap(buffer, offset, length));
+        }
+        if (length != LENGTH || !hasLayout(buffer, offset)) {
+            return ERR_FORMAT;
+        }
+        return resolveStrict(number4(buffer, offset), number2(buffer, offset + 5), number2(buffer, offset + 8),
+                number2(buffer, offset + 11), number2(buffer, offset + 14), number2(buffer, offset + 17));
+    }
+
+    /**
+     * Parse with lenient resolution, as used for q/p/k period bounds.
+     */
+    public static long parseLenient(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return ERR_MISSING;
+        }
+        if (text.length() != LENGTH || !hasLayout(text)) {
+            return ERR_FORMAT;
+        }
+        int year = number4(text, 0);
+        long totalMonths = year * 12L + number2(text, 5) - 1;
+        long days = daysFromCivil(Math.floorDiv(totalMonths, 12), Math.floorMod(totalMonths, 12) + 1, 1)
+                + number2(text, 8) - 1;
+        return days * SECONDS_PER_DAY + number2(text, 11) * 3600L + number2(text, 14) * 60L + number2(text, 17);
+    }
+
+    /**
+     * Strict parse of a '+' and 5 or more year digits, then the usual -MM-dd HH:mm:ss.
+     * Rare enough that it may allocate.
+     */
+    private static long parseExtendedYear(CharSequence text) {
+        int yearDigits = text.length() - LENGTH + 3;
+        if (yearDigits < 5 || !hasLayout(text.subSequence(yearDigits - 3, text.length()))) {
+            return ERR_FORMAT;
+        }
+        long year = 0;
+        for (int i = 1; i <= yearDigits; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return ERR_FORMAT;
+            }
+            year = Math.min(year * 10 + (c - '0'), MAX_YEAR + 1);
+        }
+        if (year > MAX_YEAR) {
+            return ERR_RANGE;
+        }
+        int at = yearDigits + 1;
+        return resolveStrict((int) year, number2(text, at + 1), number2(text, at + 4), number2(text, at + 7),
+                number2(text, at + 10), number2(text, at + 13));
+    }
+
+    private static long resolveStrict(int year, int month, int day, int hour, int minute, int second) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31 || minute > 59 || second > 59) {
+            return ERR_RANGE;
+        }
+        if (hour > 24 || (hour == 24 && (minute != 0 || second != 0))) {
+            return ERR_RANGE;
+        }
+        day = Math.min(day, lengthOfMonth(year, month));
+        return daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (Hinnant's days_from_civil).
+     */
+    private static long daysFromCivil(long year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static boolean hasLayout(CharSequence text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' '
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (i == 4 || i == 7 || i == 10 || i == 13 || i == 16) {
+                continue;
+            }
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasLayout(char[] buffer, int offset) {
+        if (buffer[offset + 4] != '-' || buffer[offset + 7] != '-' || buffer[offset + 10] != ' '
+                || buffer[offset + 13] != ':' || buffer[offset + 16] != ':') {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (i == 4 || i == 7 || i == 10 || i == 13 || i == 16) {
+                continue;
+            }
+            char c = buffer[offset + i];
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number2(CharSequence text, int at) {
+        return (text.charAt(at) - '0') * 10 + (text.charAt(at + 1) - '0');
+    }
+
+    private static int number4(CharSequence text, int at) {
+        return number2(text, at) * 100 + number2(text, at + 2);
+    }
+
+    private static int number2(char[] buffer, int at) {
+        return (buffer[at] - '0') * 10 + (buffer[at + 1] - '0');
+    }
+
+    private static int number4(char[] buffer, int at) {
+        return number2(buffer, at) * 100 + number2(buffer, at + 2);
+    }
+}
@@ -0,0 +1,183 @@
+package com.blackrock.challenge.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of fixed-width transaction records in memory-mapped segment files.
+ *
+ * Record layout (24 bytes, native byte order):
+ * int key | int check | long epochSecond | double amount
+ *
+ * Segments are pre-sized files named journal-{index}.seg, mapped read-write while
+ * being filled; a full segment rolls over to the next index. The key is written
+ * last and is never 0, so the first zero key ends the data, and a record whose
+ * check does not match its fields (a torn write) ends it too.
+ */
+final class JournalSegments implements Closeable {
+
+    static final int RECORD_BYTES = 24;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".seg";
+
+    /** Replay callback, one call per record. */
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(int key, long epochSecond, double amount);
+    }
+
+    private final Path dir;
+    private final int segmentRecords;
+
+    private long segment;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int record;
+
+    JournalSegments(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segmentRecords = Math.max(1, segmentBytes / RECORD_BYTES);
+    }
+
+    /**
+     * Replay every record from {@code from} on, then position the write cursor right
+     * after the last intact record. Returns the number of records replayed.
+     */
+    synchronized long recover(LedgerJournal.Mark from, RecordConsumer consumer) throws IOException {
+        List<Long> indexes = segments();
+        long replayed = 0;
+        long lastSegment = -1;
+        int lastEnd = 0;
+        int lastCapacity = 0;
+        for (long index : indexes) {
+            if (index < from.segment()) {
+                continue;
+            }
+            try (FileChannel file = FileChannel.open(path(index), StandardOpenOption.READ)) {
+                int records = (int) (file.size() / RECORD_BYTES);
+                MappedByteBuffer map = file.map(FileChannel.MapMode.READ_ONLY, 0, (long) records * RECORD_BYTES);
+                map.order(ByteOrder.nativeOrder());
+                int r = index == from.segment() ? from.record() : 0;
+                for (; r < records; r++) {
+                    int base = r * RECORD_BYTES;
+                    int key = map.getInt(base);
+                    long epochSecond = map.getLong(base + 8);
+                    double amount = map.getDouble(base + 16);
+                    if (key == 0 || map.getInt(base + 4) != check(key, epochSecond, amount)) {
+                        break;
+                    }
+                    consumer.accept(key, epochSecond, amount);
+                    replayed++;
+                }
+                lastSegment = index;
+                lastEnd = r;
+                lastCapacity = records;
+            }
+        }
+
+        if (lastSegment < 0) {
+            map(Math.max(from.segment(), indexes.isEmpty() ? 0 : indexes.get(indexes.size() - 1) + 1), 0);
+        } else if (lastEnd < lastCapacity) {
+            // Continue in the last segment, overwriting a torn tail if there is one
+            map(lastSegment, lastEnd);
+        } else {
+            map(lastSegment + 1, 0);
+        }
+        return replayed;
+    }
+
+    synchronized void append(int key, long epochSecond, double amount) throws IOException {
+        if (record == capacity) {
+            map(segment + 1, 0);
+        }
+        int base = record * RECORD_BYTES;
+        buffer.putInt(base + 4, check(key, epochSecond, amount));
+        buffer.putLong(base + 8, epochSecond);
+        buffer.putDouble(base + 16, amount);
+        buffer.putInt(base, key);
+        record++;
+    }
+
+    /** Position of the next record to be written. */
+    synchronized LedgerJournal.Mark mark() {
+        return new LedgerJournal.Mark(segment, record);
+    }
+
+    /** Flush the current segment to disk. */
+    synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Delete every segment before the given one (compaction after a snapshot).
+     */
+    synchronized int deleteBefore(long firstKept) throws IOException {
+        int deleted = 0;
+        for (long index : segments()) {
+            if (index < firstKept && index != segment) {
+                Files.deleteIfExists(path(index));
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void map(long index, int firstFree) throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+        Path file = path(index);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = channel.size();
+        int records = size >= RECORD_BYTES ? (int) (size / RECORD_BYTES) : segmentRecords;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_BYTES);
+        buffer.order(ByteOrder.nativeOrder());
+        segment = index;
+        capacity = records;
+        record = firstFree;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> indexes.add(Long.parseLong(
+                            name.substring(PREFIX.length(), name.length() - SUFFIX.length()))));
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private Path path(long index) {
+        return dir.resolve(PREFIX + String.format("%016d", index) + SUFFIX);
+    }
+
+    private static int check(int key, long epochSecond, double amount) {
+        long hash = (epochSecond * 0x9E3779B97F4A7C15L) ^ (Double.doubleToRawLongBits(amount) * 0xC2B2AE3D27D4EB4FL)
+                ^ key;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,242 @@
+package com.blackrock.challenge.journal;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.SavingsLedger;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local persistence for savings ledgers.
+ *
+ * Three kinds of files live in the journal directory:
+ * - ledgers.log: one JSON line per ledger open or delete (user, key, age/wage/
+ *   inflation and the q/p/k periods), so rule sets survive without the registry
+ * - journal-*.seg: memory-mapped segments of fixed-width transaction records,
+ *   keyed by the ledger's numeric key (see {@link JournalSegments})
+ * - snapshot.bin: every ledger's running state at a journal position
+ *
+ * Only rows a ledger accepted are journaled. Recovery reads the catalog, loads the
+ * snapshot and replays the segments written after it; a snapshot deletes the
+ * segments it covers and rewrites the catalog down to live ledgers. A key is never
+ * reused, so records of replaced or deleted ledgers are simply skipped.
+ *
+ * Writes go to the OS page cache (the mapped segments, the catalog) and survive a
+ * process crash; snapshots are forced to disk.
+ */
+public final class LedgerJournal implements Closeable {
+
+    private static final String CATALOG = "ledgers.log";
+    private static final String SNAPSHOT = "snapshot.bin";
+
+    /** Journal position: segment index and record within it. */
+    public record Mark(long segment, int record) {
+    }
+
+    /** Catalog entry of a ledger; the request carries age, wage, inflation and q/p/k. */
+    public record Entry(int key, String userId, String ruleSetId, FilterRequest request) {
+    }
+
+    /** A ledger rebuilt from disk. */
+    public record Recovered(Entry entry, SavingsLedger savings) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record CatalogLine(String op, int key, String userId, String ruleSetId, FilterRequest request) {
+    }
+
+    private final Path dir;
+    private final JournalSegments segments;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private BufferedWriter catalog;
+    private int nextKey = 1;
+    private long replayed;
+
+    private LedgerJournal(Path dir, int segmentBytes) {
+        this.dir = dir;
+        this.segments = new JournalSegments(dir, segmentBytes);
+    }
+
+    public static LedgerJournal open(Path dir, int segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        return new LedgerJournal(dir, segmentBytes);
+    }
+
+    /**
+     * Rebuild every live ledger: catalog, then snapshot, then the journal tail. Call
+     * once, before any write.
+     */
+    public synchronized List<Recovered> recover() throws IOException {
+        Map<String, Entry> live = new LinkedHashMap<>();
+        int maxKey = 0;
+        int lines = 0;
+        boolean torn = false;
+        Path catalogFile = dir.resolve(CATALOG);
+        if (Files.exists(catalogFile)) {
+            for (String line : Files.readAllLines(catalogFile, StandardCharsets.UTF_8)) {
+                CatalogLine parsed;
+                try {
+                    parsed = mapper.readValue(line, CatalogLine.class);
+                } catch (JsonProcessingException e) {
+                    // Torn last line from a crash mid-write; the rewrite below drops it
+                    torn = true;
+                    break;
+                }
+                lines++;
+                maxKey = Math.max(maxKey, parsed.key());
+                if ("open".equals(parsed.op())) {
+                    live.put(parsed.userId(), new Entry(parsed.key(), parsed.userId(), parsed.ruleSetId(),
+                            parsed.request()));
+                } else if ("delete".equals(parsed.op())) {
+                    live.remove(parsed.userId());
+                }
+            }
+        }
+
+        SavingsLedger[] byKey = new SavingsLedger[maxKey + 1];
+        List<Recovered> recovered = new ArrayList<>(live.size());
+        for (Entry entry : live.values()) {
+            FilterRequest request = entry.request();
+            SavingsLedger savings = new SavingsLedger(RuleSet.compile(request.getQ(), request.getP(),
+                    request.getK()));
+            byKey[entry.key()] = savings;
+            recovered.add(new Recovered(entry, savings));
+        }
+
+        LedgerSnapshot.Header header = LedgerSnapshot.read(dir.resolve(SNAPSHOT), (key, state) -> {
+            if (key < byKey.length && byKey[key] != null) {
+                byKey[key].load(state);
+            }
+        });
+        Mark from = header != null ? header.mark() : new Mark(0, 0);
+        nextKey = Math.max(maxKey + 1, header != null ? header.nextKey() : 1);
+
+        replayed = segments.recover(from, (key, epochSecond, amount) -> {
+            if (key < byKey.length && byKey[key] != null) {
+                byKey[key].restore(epochSecond, amount);
+            }
+        });
+
+        // A catalog just rewritten by a snapshot holds nothing to drop; keep it as is
+        if (torn || lines != live.size() + 1 || nextKey != maxKey + 1) {
+            rewriteCatalog(live.values());
+        } else {
+            openCatalog();
+        }
+        return recovered;
+    }
+
+    /** Records replayed from the segments by {@link #recover()}. */
+    public synchronized long replayed() {
+        return replayed;
+    }
+
+    /** A fresh ledger key; keys are never reused. */
+    public synchronized int nextKey() {
+        return nextKey++;
+    }
+
+    public synchronized void logOpen(Entry entry) {
+        writeLine(new CatalogLine("open", entry.key(), entry.userId(), entry.ruleSetId(), entry.request()));
+    }
+
+    public synchronized void logDelete(String userId) {
+        writeLine(new CatalogLine("delete", 0, userId, null, null));
+    }
+
+    public void append(int key, long epochSecond, double amount) {
+        try {
+            segments.append(key, epochSecond, amount);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal append failed", e);
+        }
+    }
+
+    /** Current end of the journal; a snapshot taken afterwards covers everything before it. */
+    public Mark mark() {
+        return segments.mark();
+    }
+
+    /**
+     * Write the state of the given ledgers (by key) as the snapshot for {@code mark},
+     * capturing each ledger as it is written. Every row written to the journal before
+     * the mark must be reflected in the states; later rows may be too, as replay skips
+     * rows a ledger already holds.
+     */
+    public void snapshot(Mark mark, Map<Integer, SavingsLedger> ledgers) throws IOException {
+        int keys;
+        synchronized (this) {
+            keys = nextKey;
+        }
+        LedgerSnapshot.write(dir.resolve(SNAPSHOT), mark, keys, ledgers);
+    }
+
+    /**
+     * Drop the segments a snapshot at {@code mark} covers. Returns the number deleted.
+     */
+    public int compact(Mark mark) throws IOException {
+        return segments.deleteBefore(mark.segment());
+    }
+
+    /**
+     * Replace the catalog with one open line per live ledger (plus the next key).
+     */
+    public synchronized void rewriteCatalog(Collection<Entry> live) throws IOException {
+        if (catalog != null) {
+            catalog.close();
+        }
+        Path file = dir.resolve(CATALOG);
+        Path temp = dir.resolve(CATALOG + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            out.write(mapper.writeValueAsString(new CatalogLine("next", nextKey - 1, null, null, null)));
+            out.newLine();
+            for (Entry entry : live) {
+                out.write(mapper.writeValueAsString(new CatalogLine("open", entry.key(), entry.userId(),
+                        entry.ruleSetId(), entry.request())));
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openCatalog();
+    }
+
+    private void openCatalog() throws IOException {
+        catalog = Files.newBufferedWriter(dir.resolve(CATALOG), StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segments.close();
+        if (catalog != null) {
+            catalog.close();
+            catalog = null;
+        }
+    }
+
+    private void writeLine(CatalogLine line) {
+        try {
+            catalog.write(mapper.writeValueAsString(line));
+            catalog.newLine();
+            catalog.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ledger catalog write failed", e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.blackrock.challenge.model;
+
+import com.blackrock.challenge.engine.TimestampParser;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar batch of expenses.
+ *
+ * Rows live in primitive columns (epoch second, amount) plus one shared char
+ * arena for the raw date text, so a batch of n expenses costs a handful of arrays
+ * instead of n Expense/String objects. Dates are parsed once, when the row is
+ * added; {@link #date(int)} only materializes a String when output needs it.
+ *
+ * Also a read-only {@code List<Expense>} view, so it can stand in wherever the
+ * request DTOs expose their expenses as a list.
+ */
+@JsonDeserialize(using = TransactionBatchDeserializer.class)
+public final class TransactionBatch extends AbstractList<Expense> implements RandomAccess {
+
+    private static final int NULL_DATE = -1;
+
+    private int size;
+    private long[] epochSeconds;
+    private double[] amounts;
+    private int[] dateOffsets;
+    private int[] dateLengths;
+    private char[] dateChars;
+    private int dateCharsUsed;
+
+    public TransactionBatch() {
+        this(16);
+    }
+
+    public TransactionBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        epochSeconds = new long[capacity];
+        amounts = new double[capacity];
+        dateOffsets = new int[capacity];
+        dateLengths = new int[capacity];
+        dateChars = new char[capacity * 19];
+    }
+
+    /**
+     * Copy a list of expenses into a batch (returns the list itself if it already is one).
+     */
+    public static TransactionBatch of(List<Expense> expenses) {
+        if (expenses instanceof TransactionBatch batch) {
+            return batch;
+        }
+        TransactionBatch batch = new TransactionBatch(expenses.size());
+        for (Expense expense : expenses) {
+            batch.add(expense.getDate(), expense.getAmount());
+        }
+        return batch;
+    }
+
+    public void add(String date, double amount) {
+        if (date == null) {
+            add(null, 0, NULL_DATE, amount);
+            return;
+        }
+        ensureCapacity(size + 1, date.length());
+        date.getChars(0, date.length(), dateChars, dateCharsUsed);
+        appendRow(TimestampParser.parseStrict(date), amount, date.length());
+    }
+
+    /**
+     * Append a row whose date is a slice of a character buffer (e.g. a streaming
+     * parser's text buffer). A negative length marks a null date.
+     */
+    public void add(char[] buffer, int offset, int length, double amount) {
+        if (length < 0) {
+            ensureCapacity(size + 1, 0);
+            epochSeconds[size] = TimestampParser.ERR_MISSING;
+            amounts[size] = amount;
+            dateOffsets[size] = dateCharsUsed;
+            dateLengths[size] = NULL_DATE;
+            size++;
+            return;
+        }
+        ensureCapacity(size + 1, length);
+        System.arraycopy(buffer, offset, dateChars, dateCharsUsed, length);
+        appendRow(TimestampParser.parseStrict(buffer, offset, length), amount, length);
+    }
+
+    /**
+     * Append every row of another batch, in order, without re-parsing dates.
+     */
+    public void append(TransactionBatch other) {
+        ensureCapacity(size + other.size, other.dateCharsUsed);
+        System.arraycopy(other.epochSeconds, 0, epochSeconds, size, other.size);
+        System.arraycopy(other.amounts, 0, amounts, size, other.size);
+        System.arraycopy(other.dateLengths, 0, dateLengths, size, other.size);
+        for (int row = 0; row < other.size; row++) {
+            dateOffsets[size + row] = other.dateOffsets[row] + dateCharsUsed;
+        }
+        System.arraycopy(other.dateChars, 0, dateChars, dateCharsUsed, other.dateCharsUsed);
+        dateCharsUsed += other.dateCharsUsed;
+        size += other.size;
+    }
+
+    @Override
+    public boolean add(Expense expense) {
+        add(expense.getDate(), expense.getAmount());
+        return true;
+    }
+
+    @Override
+    public Expense get(int index) {
+        checkIndex(index);
+        return new Expense(date(index), amounts[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parsed date as epoch seconds, or a {@link TimestampParser} error code.
+     */
+    public long epochSecond(int row) {
+        return epochSeconds[row];
+    }
+
+    public double amount(int row) {
+        return amounts[row];
+    }
+
+    public String date(int row) {
+        int length = dateLengths[row];
+        return length == NULL_DATE ? null : new String(dateChars, dateOffsets[row], length);
+    }
+
+    /**
+     * Feed the rows (date text and amount, in order) to a digest. Batches with the
+     * same rows give the same bytes however they were built; parsed epoch seconds
+     * are derived from the dates and left out.
+     */
+    public void digest(MessageDigest digest) {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        digest.update(buffer.putInt(size).flip());
+        for (int from = 0; from < size; from += buffer.capacity() / 8) {
+            int rows = Math.min(size - from, buffer.capacity() / 8);
+            buffer.clear().asDoubleBuffer().put(amounts, from, rows);
+            digest.update(buffer.limit(rows * 8));
+        }
+        for (int from = 0; from < size; from += buffer.capacity() / 4) {
+            int rows = Math.min(size - from, buffer.capacity() / 4);
+            buffer.clear().asIntBuffer().put(dateLengths, from, rows);
+            digest.update(buffer.limit(rows * 4));
+        }
+        // Rows append their date text in order, so the used arena is the dates back to back
+        for (int from = 0; from < dateCharsUsed; from += buffer.capacity() / 2) {
+            int chars = Math.min(dateCharsUsed - from, buffer.capacity() / 2);
+            buffer.clear().asCharBuffer().put(dateChars, from, chars);
+            digest.update(buffer.limit(chars * 2));
+        }
+    }
+
+    private void appendRow(long epochSecond, double amount, int dateLength) {
+        epochSeconds[size] = epochSecond;
+        amounts[size] = amount;
+        dateOffsets[size] = dateCharsUsed;
+        dateLengths[size] = dateLength;
+        dateCharsUsed += dateLength;
+        size++;
+    }
+
+    private void ensureCapacity(int rows, int extraChars) {
+        if (rows > epochSeconds.length) {
+            int capacity = Math.max(rows, epochSeconds.length * 2);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            dateOffsets = Arrays.copyOf(dateOffsets, capacity);
+            dateLengths = Arrays.copyOf(dateLengths, capacity);
+        }
+        if (dateCharsUsed + extraChars > dateChars.length) {
+            dateChars = Arrays.copyOf(dateChars, Math.max(dateCharsUsed + extraChars, dateChars.length * 2));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.blackrock.challenge.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.impl.NullsConstantProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Binds a JSON array of {"date", "amount"} objects directly into a
+ * {@link TransactionBatch}, without creating an Expense per row.
+ * Date text is copied straight from the parser's character buffer.
+ */
+public class TransactionBatchDeserializer extends StdDeserializer<TransactionBatch> {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransactionBatchDeserializer() {
+        super(TransactionBatch.class);
+    }
+
+    @Override
+    public TransactionBatch deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            return (TransactionBatch) ctxt.handleUnexpectedToken(TransactionBatch.class, parser);
+        }
+
+        TransactionBatch batch = new TransactionBatch(256);
+        // Parser buffers are only valid until the next token, so each date is copied
+        // into one reusable scratch buffer until its row is complete.
+        char[] scratch = new char[32];
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                return (TransactionBatch) ctxt.handleUnexpectedToken(Expense.class, parser);
+            }
+
+            double amount = 0;
+            int dateLength = -1;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("date".equals(field)) {
+                    if (value == JsonToken.VALUE_NULL) {
+                        dateLength = -1;
+                    } else if (value == JsonToken.VALUE_STRING) {
+                        dateLength = parser.getTextLength();
+                        if (dateLength > scratch.length) {
+                            scratch = new char[Math.max(dateLength, scratch.length * 2)];
+                        }
+                        System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), scratch, 0, dateLength);
+                    } else {
+                        // Same coercions as binding a String field (numbers, booleans; objects fail)
+                        String text = _parseString(parser, ctxt, NullsConstantProvider.nuller());
+                        dateLength = text.length();
+                        if (dateLength > scratch.length) {
+                            scratch = new char[Math.max(dateLength, scratch.length * 2)];
+                        }
+                        text.getChars(0, dateLength, scratch, 0);
+                    }
+                } else if ("amount".equals(field)) {
+                    amount = value.isNumeric() ? parser.getDoubleValue() : _parseDoublePrimitive(parser, ctxt);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            batch.add(scratch, 0, dateLength, amount);
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,218 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.dto.BatchReturnsResult;
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.engine.RuleSet;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Returns for many users in one call.
+ *
+ * Entries run concurrently on a fixed-size pool shared by all batch calls. Each call
+ * keeps at most {@code max-in-flight} entries submitted and emits results strictly in
+ * input order as the oldest entry completes, so memory stays bounded for streamed
+ * input. A failing entry yields an error result with its own status; the rest of the
+ * batch is unaffected.
+ */
+@Service
+public class BatchReturnsService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchReturnsService.class);
+
+    /** Instrument computed for every entry of a batch. */
+    public enum Instrument {
+        NPS, INDEX, COMPARE;
+
+        public static Instrument of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown instrument: " + name + " (expected nps, index or compare)");
+            }
+        }
+    }
+
+    /** Receives batch results in input order. */
+    @FunctionalInterface
+    public interface ResultWriter {
+        void write(BatchReturnsResult result) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface EntrySource {
+        /** Task for the next entry, or null when the input is exhausted. */
+        Callable<BatchReturnsResult> next(int index) throws IOException;
+    }
+
+    private final ReturnsService returnsService;
+    private final RuleSetRegistry ruleSetRegistry;
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+
+    /** Worker threads; 0 means one per available processor. */
+    @Value("${challenge.batch.threads:0}")
+    private int threads = 0;
+
+    @Value("${challenge.batch.max-in-flight:256}")
+    private int maxInFlight = 256;
+
+    private ExecutorService executor;
+
+    public BatchReturnsService(ReturnsService returnsService, RuleSetRegistry ruleSetRegistry,
+            ObjectMapper objectMapper, PipelineMetrics metrics) {
+        this.returnsService = returnsService;
+        this.ruleSetRegistry = ruleSetRegistry;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Run a batch of already bound requests; results come back in input order.
+     */
+    public List<BatchReturnsResult> calculate(List<FilterRequest> requests, Instrument instrument) {
+        List<BatchReturnsResult> results = new ArrayList<>(requests.size());
+        try {
+            run(index -> index < requests.size() ? () -> calculate(index, requests.get(index), instrument) : null,
+                    results::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return results;
+    }
+
+    /**
+     * Streaming batch: reads requests one at a time (the elements of a JSON array, or
+     * NDJSON) and hands each result to {@code writer} in input order. Each entry is
+     * bound to a FilterRequest inside its own task, so a malformed entry only fails
+     * itself; malformed JSON syntax still aborts the stream. Returns the entry count.
+     */
+    public long calculateStream(JsonParser parser, Instrument instrument, ResultWriter writer) throws IOException {
+        JsonToken first = parser.nextToken();
+        boolean inArray = first == JsonToken.START_ARRAY;
+        JsonToken[] pending = { inArray ? parser.nextToken() : first };
+
+        return run(index -> {
+            JsonToken token = pending[0];
+            if (token == null || (inArray && token == JsonToken.END_ARRAY)) {
+                return null;
+            }
+            JsonNode node = objectMapper.readTree(parser);
+            pending[0] = parser.nextToken();
+            return () -> calculate(index, node, instrument);
+        }, writer);
+    }
+
+    private long run(EntrySource source, ResultWriter writer) throws IOException {
+        ExecutorService pool = executor();
+        Deque<Future<BatchReturnsResult>> inFlight = new ArrayDeque<>();
+        int index = 0;
+        try {
+            Callable<BatchReturnsResult> task;
+            while ((task = source.next(index)) != null) {
+                if (inFlight.size() >= maxInFlight) {
+                    writer.write(await(inFlight.poll()));
+                }
+                inFlight.add(pool.submit(task));
+                index++;
+            }
+            while (!inFlight.isEmpty()) {
+                writer.write(await(inFlight.poll()));
+            }
+        } finally {
+            // Input or output failed mid-batch: drop what is still queued
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        return index;
+    }
+
+    private BatchReturnsResult calculate(int index, JsonNode node, Instrument instrument) {
+        FilterRequest request;
+        try {
+            long start = System.nanoTime();
+            request = objectMapper.treeToValue(node, FilterRequest.class);
+            metrics.stages(PipelineMetrics.RETURNS).stage(PipelineStage.PARSE, System.nanoTime() - start);
+        } catch (JsonProcessingException e) {
+            return BatchReturnsResult.failed(index, 400, "Invalid request body", e.getOriginalMessage());
+        }
+        return calculate(index, request, instrument);
+    }
+
+    private BatchReturnsResult calculate(int index, FilterRequest request, Instrument instrument) {
+        try {
+            RuleSet ruleSet = ruleSetRegistry.resolve(request);
+            switch (instrument) {
+                case INDEX:
+                    return BatchReturnsResult.ok(index, returnsService.calculateIndex(request, ruleSet));
+                case COMPARE:
+                    return BatchReturnsResult.ok(index, returnsService.compare(request, ruleSet));
+                default:
+                    return BatchReturnsResult.ok(index, returnsService.calculateNPS(request, ruleSet));
+            }
+        } catch (IllegalArgumentException e) {
+            return BatchReturnsResult.failed(index, 400, "Invalid argument", e.getMessage());
+        } catch (NoSuchElementException e) {
+            return BatchReturnsResult.failed(index, 404, "Not found", e.getMessage());
+        } catch (RuntimeException e) {
+            // Anything else is a bug, not a bad entry: keep the batch going but leave a trace
+            log.error("Batch entry {} ({}) failed", index, instrument, e);
+            return BatchReturnsResult.failed(index, 500, "Internal server error", e.getMessage());
+        }
+    }
+
+    private static BatchReturnsResult await(Future<BatchReturnsResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        } catch (ExecutionException e) {
+            // Tasks turn their own failures into error results; only Errors end up here
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(size, runnable -> {
+                Thread thread = new Thread(runnable, "returns-batch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.engine.CsvExpenseReader;
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.StageListener;
+import com.blackrock.challenge.model.TransactionBatch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Filter and returns over CSV exports of {@code date,amount} rows.
+ *
+ * The CSV is read by {@link CsvExpenseReader} into the same columnar batch a JSON
+ * body binds to, then run through the usual services, so results match the JSON
+ * endpoints row for row. Uploads are spooled to a temporary file first (the body is
+ * never held in memory) and that file is mapped; local files are mapped in place and
+ * must lie inside {@code challenge.import.dir}.
+ */
+@Service
+public class CsvImportService {
+
+    private final TransactionService transactionService;
+    private final ReturnsService returnsService;
+    private final RuleSetRegistry ruleSetRegistry;
+    private final PipelineMetrics metrics;
+
+    /** Directory local files are read from; empty disables local-file imports. */
+    private final String importDir;
+
+    /** Largest CSV accepted, uploaded or local; rows cost about 2.5× their CSV size in heap. */
+    private final long maxBytes;
+
+    public CsvImportService(TransactionService transactionService, ReturnsService returnsService,
+            RuleSetRegistry ruleSetRegistry, PipelineMetrics metrics,
+            @Value("${challenge.import.dir:}") String importDir,
+            @Value("${challenge.import.max-bytes:67108864}") long maxBytes) {
+        this.transactionService = transactionService;
+        this.returnsService = returnsService;
+        this.ruleSetRegistry = ruleSetRegistry;
+        this.metrics = metrics;
+        this.importDir = importDir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Run an uploaded CSV. {@code params} carries everything but the rows: rule set,
+     * age, wage and inflation.
+     */
+    public Object importUpload(InputStream body, FilterRequest params, String operation) throws IOException {
+        JobService.Operation selected = JobService.Operation.of(operation);
+        RuleSet ruleSet = ruleSetRegistry.resolve(params);
+        Path spool = Files.createTempFile("import-", ".csv");
+        try {
+            try (OutputStream out = Files.newOutputStream(spool)) {
+                byte[] buffer = new byte[64 * 1024];
+                long total = 0;
+                int read;
+                while ((read = body.read(buffer)) > 0) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new IllegalArgumentException("CSV upload exceeds " + maxBytes + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            return run(spool, params, ruleSet, selected);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    /**
+     * Run a CSV file from the import directory; {@code file} is relative to it.
+     */
+    public Object importFile(String file, FilterRequest params, String operation) throws IOException {
+        JobService.Operation selected = JobService.Operation.of(operation);
+        if (importDir == null || importDir.isBlank()) {
+            throw new IllegalArgumentException("Local file import is disabled (set challenge.import.dir)");
+        }
+        Path root = Path.of(importDir).toAbsolutePath().normalize();
+        Path path = root.resolve(file).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("File must be inside the import directory: " + file);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchElementException("No such file: " + file);
+        }
+        // A symlink inside the directory must not lead out of it
+        if (!path.toRealPath().startsWith(root.toRealPath())) {
+            throw new IllegalArgumentException("File must be inside the import directory: " + file);
+        }
+        if (Files.size(path) > maxBytes) {
+            throw new IllegalArgumentException("CSV file exceeds " + maxBytes + " bytes");
+        }
+        RuleSet ruleSet = ruleSetRegistry.resolve(params);
+        return run(path, params, ruleSet, selected);
+    }
+
+    private Object run(Path csv, FilterRequest params, RuleSet ruleSet, JobService.Operation operation)
+            throws IOException {
+        long start = System.nanoTime();
+        TransactionBatch batch = CsvExpenseReader.read(csv, ForkJoinPool.commonPool());
+        metrics.stages(operation.metricsOperation()).stage(PipelineStage.PARSE, System.nanoTime() - start);
+        params.setExpenses(batch);
+        return operation.run(transactionService, returnsService, params, ruleSet, StageListener.NONE);
+    }
+}
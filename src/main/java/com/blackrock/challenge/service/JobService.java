@@ -0,0 +1,401 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.dto.JobStatus;
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.StageListener;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Filter and returns requests run in the background.
+ *
+ * A job is accepted with an id and runs on a fixed pool of {@code workers} threads
+ * fed by a queue of at most {@code queue-capacity} jobs; when the queue is full a
+ * submit is refused with a retry estimate instead of piling up uploads in memory.
+ * Progress follows the pipeline stages as they complete. A finished job keeps its
+ * result for {@code result-ttl-seconds}, after which it is dropped.
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    /** Work a job runs, and the last pipeline stage it reports. */
+    public enum Operation {
+        FILTER(PipelineStage.K), NPS(PipelineStage.RETURNS), INDEX(PipelineStage.RETURNS),
+        COMPARE(PipelineStage.RETURNS);
+
+        private final PipelineStage lastStage;
+
+        Operation(PipelineStage lastStage) {
+            this.lastStage = lastStage;
+        }
+
+        /** Metrics operation its stages are recorded under. */
+        public String metricsOperation() {
+            return this == FILTER ? PipelineMetrics.FILTER : PipelineMetrics.RETURNS;
+        }
+
+        /**
+         * Run through the services exactly as the synchronous endpoint does.
+         */
+        Object run(TransactionService transactions, ReturnsService returns, FilterRequest request, RuleSet ruleSet,
+                StageListener progress) {
+            switch (this) {
+                case FILTER:
+                    return transactions.filter(request, ruleSet, progress);
+                case INDEX:
+                    return returns.calculateIndex(request, ruleSet, progress);
+                case COMPARE:
+                    return returns.compare(request, ruleSet, progress);
+                default:
+                    return returns.calculateNPS(request, ruleSet, progress);
+            }
+        }
+
+        public static Operation of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Unknown operation: " + name + " (expected filter, nps, index or compare)");
+            }
+        }
+    }
+
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isDone() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final TransactionService transactionService;
+    private final ReturnsService returnsService;
+    private final RuleSetRegistry ruleSetRegistry;
+
+    private final int workers;
+    private final int queueCapacity;
+    private final long resultTtlSeconds;
+
+    /** Jobs held at once, queued, running or finished. */
+    private final int maxJobs;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    // Smoothed run time of recent jobs, for Retry-After
+    private volatile long averageRunNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService sweeper;
+
+    public JobService(TransactionService transactionService, ReturnsService returnsService,
+            RuleSetRegistry ruleSetRegistry, @Value("${challenge.jobs.workers:2}") int workers,
+            @Value("${challenge.jobs.queue-capacity:16}") int queueCapacity,
+            @Value("${challenge.jobs.result-ttl-seconds:600}") long resultTtlSeconds,
+            @Value("${challenge.jobs.max-jobs:1000}") int maxJobs) {
+        this.transactionService = transactionService;
+        this.returnsService = returnsService;
+        this.ruleSetRegistry = ruleSetRegistry;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.resultTtlSeconds = resultTtlSeconds;
+        this.maxJobs = maxJobs;
+    }
+
+    private final class Job implements Runnable {
+
+        final String id = UUID.randomUUID().toString();
+        final Operation operation;
+        final Instant submittedAt = Instant.now();
+        // Guarded by itself; also orders deliveries, so no watcher sees an older status after a newer one
+        final List<Consumer<JobStatus>> watchers = new ArrayList<>();
+
+        // Dropped once the job starts, so a finished job holds only its result
+        FilterRequest request;
+        RuleSet ruleSet;
+        Future<?> future;
+
+        State state = State.QUEUED;
+        PipelineStage stage;
+        Instant startedAt;
+        Instant finishedAt;
+        Object result;
+        Integer status;
+        String error;
+        String message;
+
+        Job(Operation operation, FilterRequest request, RuleSet ruleSet) {
+            this.operation = operation;
+            this.request = request;
+            this.ruleSet = ruleSet;
+        }
+
+        @Override
+        public void run() {
+            FilterRequest work;
+            RuleSet rules;
+            synchronized (this) {
+                if (state != State.QUEUED) {
+                    return;
+                }
+                state = State.RUNNING;
+                startedAt = Instant.now();
+                work = request;
+                rules = ruleSet;
+                request = null;
+                ruleSet = null;
+            }
+            changed();
+            long started = System.nanoTime();
+            Object output = null;
+            try {
+                output = operation.run(transactionService, returnsService, work, rules, (completed, nanos) -> {
+                    synchronized (this) {
+                        stage = completed;
+                    }
+                    changed();
+                });
+            } catch (IllegalArgumentException e) {
+                fail(400, "Invalid argument", e.getMessage());
+            } catch (NoSuchElementException e) {
+                fail(404, "Not found", e.getMessage());
+            } catch (RuntimeException e) {
+                fail(500, "Internal server error", e.getMessage());
+            }
+            long elapsed = System.nanoTime() - started;
+            averageRunNanos = averageRunNanos + (elapsed - averageRunNanos) / 4;
+            synchronized (this) {
+                if (state == State.RUNNING) {
+                    state = State.SUCCEEDED;
+                    stage = operation.lastStage;
+                    result = output;
+                }
+                if (finishedAt == null) {
+                    finishedAt = Instant.now();
+                }
+            }
+            changed();
+        }
+
+        synchronized void fail(int status, String error, String message) {
+            if (state == State.RUNNING) {
+                state = State.FAILED;
+                this.status = status;
+                this.error = error;
+                this.message = message;
+            }
+        }
+
+        synchronized boolean expired(Instant now) {
+            return finishedAt != null && now.isAfter(finishedAt.plusSeconds(resultTtlSeconds));
+        }
+
+        synchronized JobStatus status() {
+            double progress = state == State.SUCCEEDED ? 1
+                    : stage == null ? 0
+                    : stage.ordinal() / (double) operation.lastStage.ordinal();
+            return new JobStatus(id, operation.name().toLowerCase(Locale.ROOT), state.name().toLowerCase(Locale.ROOT),
+                    progress, stage == null ? null : stage.name().toLowerCase(Locale.ROOT), submittedAt.toString(),
+                    startedAt == null ? null : startedAt.toString(),
+                    finishedAt == null ? null : finishedAt.toString(),
+                    finishedAt == null ? null : finishedAt.plusSeconds(resultTtlSeconds).toString(),
+                    status, error, message);
+        }
+
+        synchronized boolean done() {
+            return state.isDone();
+        }
+
+        /** Tell every watcher the current status; watchers are let go once the job is done. */
+        void changed() {
+            synchronized (watchers) {
+                JobStatus current = status();
+                watchers.removeIf(watcher -> !deliver(watcher, current));
+                if (done()) {
+                    watchers.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue a request. The rule set is resolved now, so an unknown id or invalid
+     * period fails the submit rather than the job.
+     *
+     * @throws RetryLaterException when the queue or the job store is full
+     */
+    public JobStatus submit(FilterRequest request, String operation) {
+        Operation selected = Operation.of(operation);
+        RuleSet ruleSet = ruleSetRegistry.resolve(request);
+        evictExpired();
+        if (jobs.size() >= maxJobs) {
+            throw new RetryLaterException("Job store is full (" + maxJobs + " jobs)", retryAfterSeconds());
+        }
+        Job job = new Job(selected, request, ruleSet);
+        jobs.put(job.id, job);
+        try {
+            Future<?> future = executor().submit(job);
+            synchronized (job) {
+                job.future = future;
+            }
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new RetryLaterException("Job queue is full (" + queueCapacity + " jobs waiting)",
+                    retryAfterSeconds());
+        }
+        return job.status();
+    }
+
+    public JobStatus status(String id) {
+        return job(id).status();
+    }
+
+    /**
+     * Output of a job that succeeded: a FilterResponse, ReturnsResponse or
+     * ReturnsComparisonResponse.
+     *
+     * @throws IllegalStateException when the job has not succeeded
+     */
+    public Object result(String id) {
+        Job job = job(id);
+        synchronized (job) {
+            if (job.state != State.SUCCEEDED) {
+                throw new IllegalStateException("Job " + id + " is " + job.state.name().toLowerCase(Locale.ROOT));
+            }
+            return job.result;
+        }
+    }
+
+    /**
+     * Send the job's status to {@code watcher} now and on every change until it is
+     * done. Returns a handle that stops the updates early.
+     */
+    public Runnable watch(String id, Consumer<JobStatus> watcher) {
+        Job job = job(id);
+        synchronized (job.watchers) {
+            if (deliver(watcher, job.status()) && !job.done()) {
+                job.watchers.add(watcher);
+            }
+        }
+        return () -> {
+            synchronized (job.watchers) {
+                job.watchers.remove(watcher);
+            }
+        };
+    }
+
+    /**
+     * Cancel a queued or running job and drop it. A running pipeline is not
+     * interrupted mid-stage; its result is discarded.
+     */
+    public void cancel(String id) {
+        Job job = job(id);
+        jobs.remove(id);
+        synchronized (job) {
+            if (!job.state.isDone()) {
+                job.state = State.CANCELLED;
+                job.finishedAt = Instant.now();
+                job.request = null;
+                job.ruleSet = null;
+            }
+            if (job.future != null && job.future.cancel(false) && executor != null) {
+                // Free the queue slot now rather than when a worker reaches it
+                executor.remove((Runnable) job.future);
+            }
+        }
+        job.changed();
+    }
+
+    /** A watcher that throws is dropped; it never fails the job. */
+    private static boolean deliver(Consumer<JobStatus> watcher, JobStatus status) {
+        try {
+            watcher.accept(status);
+            return true;
+        } catch (RuntimeException e) {
+            log.debug("Dropping job watcher", e);
+            return false;
+        }
+    }
+
+    private Job job(String id) {
+        Job job = jobs.get(id);
+        if (job == null || job.expired(Instant.now())) {
+            throw new NoSuchElementException("Unknown job: " + id);
+        }
+        return job;
+    }
+
+    /**
+     * Time for the jobs ahead of a new one to drain: queued jobs per worker, plus
+     * the one running, at the recent average run time.
+     */
+    private long retryAfterSeconds() {
+        int queued = executor == null ? 0 : executor.getQueue().size();
+        long nanos = averageRunNanos * (queued / Math.max(workers, 1) + 1);
+        return Math.max(1, (nanos + 999_999_999) / 1_000_000_000);
+    }
+
+    private void evictExpired() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> job.expired(now));
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, "job-worker-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            long period = Math.max(1, Math.min(resultTtlSeconds, 60));
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "job-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(() -> {
+                try {
+                    evictExpired();
+                } catch (RuntimeException e) {
+                    log.warn("Job eviction failed", e);
+                }
+            }, period, period, TimeUnit.SECONDS);
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            sweeper.shutdownNow();
+        }
+    }
+}
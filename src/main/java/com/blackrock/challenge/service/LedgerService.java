@@ -0,0 +1,272 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.dto.KPeriodTotal;
+import com.blackrock.challenge.dto.LedgerAppendResponse;
+import com.blackrock.challenge.dto.LedgerResponse;
+import com.blackrock.challenge.dto.ReturnsResponse;
+import com.blackrock.challenge.engine.ProcessedBatch;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.SavingsLedger;
+import com.blackrock.challenge.journal.LedgerJournal;
+import com.blackrock.challenge.model.InvalidTransaction;
+import com.blackrock.challenge.model.KPeriod;
+import com.blackrock.challenge.model.TransactionBatch;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user savings ledgers that grow by appends.
+ *
+ * A ledger is opened with a rule set (registered id or inline q/p/k) and the
+ * user's age, wage and inflation, then receives expenses a few at a time. Each
+ * append updates dedup state, remanents and k-period totals incrementally (see
+ * {@link SavingsLedger}), so reading totals or returns never rescans history.
+ *
+ * Ledgers live in memory. With {@code challenge.journal.dir} set they are also
+ * journaled (see {@link LedgerJournal}): recovered at startup, snapshotted every
+ * {@code challenge.journal.snapshot-interval-seconds} and on shutdown.
+ */
+@Service
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    private final Map<String, Ledger> ledgers = new ConcurrentHashMap<>();
+
+    private final RuleSetRegistry ruleSetRegistry;
+    private final ReturnsService returnsService;
+
+    private final int maxEntries;
+
+    /** Journal directory; empty keeps ledgers in memory only. */
+    private final String journalDir;
+    private final int segmentBytes;
+    private final long snapshotIntervalSeconds;
+
+    private LedgerJournal journal;
+    private ScheduledExecutorService snapshotter;
+    private int nextKey = 1;
+
+    public LedgerService(RuleSetRegistry ruleSetRegistry, ReturnsService returnsService,
+            @Value("${challenge.ledger.max-entries:10000}") int maxEntries,
+            @Value("${challenge.journal.dir:}") String journalDir,
+            @Value("${challenge.journal.segment-bytes:67108864}") int segmentBytes,
+            @Value("${challenge.journal.snapshot-interval-seconds:300}") long snapshotIntervalSeconds) {
+        this.ruleSetRegistry = ruleSetRegistry;
+        this.returnsService = returnsService;
+        this.maxEntries = maxEntries;
+        this.journalDir = journalDir;
+        this.segmentBytes = segmentBytes;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    /**
+     * A ledger plus the request parameters it was opened with (age, wage, inflation,
+     * projection and the resolved q/p/k periods).
+     */
+    private record Ledger(int key, String userId, String ruleSetId, FilterRequest params, SavingsLedger savings) {
+
+        LedgerJournal.Entry entry() {
+            return new LedgerJournal.Entry(key, userId, ruleSetId, params);
+        }
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        if (journalDir == null || journalDir.isBlank()) {
+            return;
+        }
+        long started = System.nanoTime();
+        journal = LedgerJournal.open(Path.of(journalDir), segmentBytes);
+        for (LedgerJournal.Recovered recovered : journal.recover()) {
+            LedgerJournal.Entry entry = recovered.entry();
+            ledgers.put(entry.userId(), new Ledger(entry.key(), entry.userId(), entry.ruleSetId(), entry.request(),
+                    recovered.savings()));
+        }
+        log.info("Recovered {} ledgers ({} journal records replayed) from {} in {} ms", ledgers.size(),
+                journal.replayed(), journalDir, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        if (snapshotIntervalSeconds > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ledger-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Ledger snapshot failed", e);
+                }
+            }, snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Snapshot every ledger, then compact: delete the journal segments the snapshot
+     * covers and rewrite the catalog down to live ledgers. No-op without a journal.
+     */
+    public void snapshot() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        LedgerJournal.Mark mark;
+        Map<Integer, SavingsLedger> live = new HashMap<>();
+        synchronized (this) {
+            mark = journal.mark();
+            ledgers.values().forEach(ledger -> live.put(ledger.key(), ledger.savings()));
+        }
+        journal.snapshot(mark, live);
+        synchronized (this) {
+            journal.rewriteCatalog(ledgers.values().stream().map(Ledger::entry).toList());
+        }
+        journal.compact(mark);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        snapshot();
+        journal.close();
+    }
+
+    /**
+     * Open (or replace) the ledger of a user; expenses in the request become its
+     * first entries.
+     */
+    public synchronized LedgerAppendResponse open(String userId, FilterRequest request) {
+        if (!ledgers.containsKey(userId) && ledgers.size() >= maxEntries) {
+            throw new IllegalArgumentException("Ledger store is full (" + maxEntries + " entries)");
+        }
+        RuleSet ruleSet = ruleSetRegistry.resolve(request);
+        FilterRequest params = new FilterRequest();
+        params.setAge(request.getAge());
+        params.setWage(request.getWage());
+        params.setInflation(request.getInflation());
+        params.setProjection(request.isProjection());
+        params.setQ(ruleSet.getQ());
+        params.setP(ruleSet.getP());
+        params.setK(ruleSet.getK());
+
+        int key = journal != null ? journal.nextKey() : nextKey++;
+        Ledger ledger = new Ledger(key, userId, request.getRuleSetId(), params, new SavingsLedger(ruleSet));
+        if (journal != null) {
+            journal.logOpen(ledger.entry());
+        }
+        LedgerAppendResponse response = append(ledger, request.getTransactionBatch());
+        ledgers.put(userId, ledger);
+        return response;
+    }
+
+    public LedgerAppendResponse append(String userId, TransactionBatch expenses) {
+        while (true) {
+            Ledger ledger = get(userId);
+            synchronized (ledger.savings()) {
+                // open() or remove() may have swapped the ledger out between lookup and lock
+                if (ledgers.get(userId) == ledger) {
+                    return append(ledger, expenses);
+                }
+            }
+        }
+    }
+
+    public LedgerResponse summary(String userId) {
+        Ledger ledger = get(userId);
+        synchronized (ledger.savings()) {
+            return summary(ledger);
+        }
+    }
+
+    public ReturnsResponse calculateNPS(String userId) {
+        Ledger ledger = get(userId);
+        List<KPeriod> kPeriods = ledger.savings().ruleSet().getK();
+        synchronized (ledger.savings()) {
+            SavingsLedger savings = ledger.savings();
+            return returnsService.calculateNPS(ledger.params(), kPeriods, savings.totalAmount(),
+                    savings.totalCeiling(), savings.kSums());
+        }
+    }
+
+    public ReturnsResponse calculateIndex(String userId) {
+        Ledger ledger = get(userId);
+        List<KPeriod> kPeriods = ledger.savings().ruleSet().getK();
+        synchronized (ledger.savings()) {
+            SavingsLedger savings = ledger.savings();
+            return returnsService.calculateIndex(ledger.params(), kPeriods, savings.totalAmount(),
+                    savings.totalCeiling(), savings.kSums());
+        }
+    }
+
+    public synchronized void remove(String userId) {
+        if (ledgers.remove(userId) == null) {
+            throw new NoSuchElementException("Unknown ledger: " + userId);
+        }
+        if (journal != null) {
+            journal.logDelete(userId);
+        }
+    }
+
+    private Ledger get(String userId) {
+        Ledger ledger = ledgers.get(userId);
+        if (ledger == null) {
+            throw new NoSuchElementException("Unknown ledger: " + userId);
+        }
+        return ledger;
+    }
+
+    private LedgerAppendResponse append(Ledger ledger, TransactionBatch batch) {
+        List<InvalidTransaction> invalid = new ArrayList<>();
+        synchronized (ledger.savings()) {
+            ProcessedBatch processed = ledger.savings().append(batch);
+            if (journal != null) {
+                for (int i = 0; i < processed.validCount(); i++) {
+                    int row = processed.validRow(i);
+                    journal.append(ledger.key(), batch.epochSecond(row), batch.amount(row));
+                }
+            }
+            for (int row = 0; row < processed.size(); row++) {
+                byte status = processed.status(row);
+                if (status != ProcessedBatch.VALID) {
+                    invalid.add(new InvalidTransaction(batch.date(row), batch.amount(row), 0, 0,
+                            TransactionService.filterMessage(status)));
+                }
+            }
+            return new LedgerAppendResponse(processed.validCount(), invalid, summary(ledger));
+        }
+    }
+
+    private static LedgerResponse summary(Ledger ledger) {
+        SavingsLedger savings = ledger.savings();
+        List<KPeriod> kPeriods = savings.ruleSet().getK();
+        double[] kSums = savings.kSums();
+        List<KPeriodTotal> totals = new ArrayList<>(kPeriods.size());
+        for (int j = 0; j < kPeriods.size(); j++) {
+            totals.add(new KPeriodTotal(kPeriods.get(j).getStart(), kPeriods.get(j).getEnd(),
+                    ReturnsService.round2(kSums[j])));
+        }
+        return new LedgerResponse(ledger.userId(), ledger.ruleSetId(), savings.size(), savings.totalAmount(),
+                savings.totalCeiling(), totals);
+    }
+}
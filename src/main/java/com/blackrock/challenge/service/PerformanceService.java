@@ -1,34 +1,154 @@
 package com.blackrock.challenge.service;
 
+import com.blackrock.challenge.dto.JvmTelemetryResponse;
 import com.blackrock.challenge.dto.PerformanceResponse;
 import org.springframework.stereotype.Service;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 public class PerformanceService {
 
     private final long startTime = System.currentTimeMillis();
 
+    // MXBeans are looked up once; reading them is a handful of native calls per poll
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+    // Previous allocation sample, for the rate between two polls
+    private long lastSampleNanos = System.nanoTime();
+    private long lastAllocatedBytes = allocatedBytes();
+
     public PerformanceResponse getPerformance() {
         long uptimeMs = System.currentTimeMillis() - startTime;
 
-        // Format as "1970-01-01 HH:mm:ss.SSS" (epoch-based time representation)
-        long hours = uptimeMs / 3_600_000;
-        long minutes = (uptimeMs % 3_600_000) / 60_000;
-        long seconds = (uptimeMs % 60_000) / 1_000;
-        long millis = uptimeMs % 1_000;
-        String time = String.format("1970-01-01 00:%02d:%02d.%03d", minutes, seconds, millis);
-        if (hours > 0) {
-            time = String.format("1970-01-01 %02d:%02d:%02d.%03d", hours, minutes, seconds, millis);
-        }
-
         // Memory usage in MB
         Runtime runtime = Runtime.getRuntime();
         double memoryMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0);
-        String memory = String.format("%.2f", memoryMb);
 
         // Active threads
         int threads = Thread.activeCount();
 
-        return new PerformanceResponse(time, memory, threads);
+        return new PerformanceResponse(formatUptime(uptimeMs), formatMb(memoryMb), threads);
+    }
+
+    /**
+     * GC, memory pool, allocation, CPU and thread figures from the platform MXBeans.
+     * GC time is the collector's accumulated collection time (stop-the-world pauses for
+     * the young/old collectors, pause phases for G1's concurrent cycle).
+     */
+    public JvmTelemetryResponse getJvmTelemetry() {
+        long uptimeMs = System.currentTimeMillis() - startTime;
+
+        List<JvmTelemetryResponse.Collector> gc = new ArrayList<>(collectors.size());
+        for (GarbageCollectorMXBean collector : collectors) {
+            gc.add(new JvmTelemetryResponse.Collector(collector.getName(), collector.getCollectionCount(),
+                    collector.getCollectionTime()));
+        }
+
+        List<JvmTelemetryResponse.MemoryStats> poolStats = new ArrayList<>(pools.size());
+        for (MemoryPoolMXBean pool : pools) {
+            String type = pool.getType() == MemoryType.HEAP ? "heap" : "non_heap";
+            poolStats.add(memoryStats(pool.getName(), type, pool.getUsage()));
+        }
+        JvmTelemetryResponse.Memory memoryStats = new JvmTelemetryResponse.Memory(
+                memoryStats("heap", "heap", memory.getHeapMemoryUsage()),
+                memoryStats("non_heap", "non_heap", memory.getNonHeapMemoryUsage()),
+                poolStats);
+
+        JvmTelemetryResponse.Threads threadStats = new JvmTelemetryResponse.Threads(threads.getThreadCount(),
+                threads.getPeakThreadCount(), threads.getDaemonThreadCount(), threads.getTotalStartedThreadCount());
+
+        return new JvmTelemetryResponse(formatUptime(uptimeMs), uptimeMs, gc, memoryStats, allocation(), cpu(),
+                threadStats);
+    }
+
+    /**
+     * Total heap allocation and its rate since the previous call (the first call
+     * measures from service start).
+     */
+    private synchronized JvmTelemetryResponse.Allocation allocation() {
+        long now = System.nanoTime();
+        long allocated = allocatedBytes();
+        if (allocated < 0) {
+            return new JvmTelemetryResponse.Allocation(-1, -1);
+        }
+        double seconds = (now - lastSampleNanos) / 1e9;
+        double rate = seconds > 0 ? (allocated - lastAllocatedBytes) / seconds : 0;
+        lastSampleNanos = now;
+        lastAllocatedBytes = allocated;
+        return new JvmTelemetryResponse.Allocation(allocated, Math.round(rate));
+    }
+
+    private JvmTelemetryResponse.Cpu cpu() {
+        double load = -1;
+        long cpuTimeMs = -1;
+        if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+            load = sunOs.getProcessCpuLoad();
+            long cpuTimeNanos = sunOs.getProcessCpuTime();
+            cpuTimeMs = cpuTimeNanos < 0 ? -1 : cpuTimeNanos / 1_000_000;
+        }
+        return new JvmTelemetryResponse.Cpu(load, cpuTimeMs, os.getAvailableProcessors(),
+                os.getSystemLoadAverage());
+    }
+
+    /**
+     * Bytes allocated in the heap by all threads since JVM start, or -1 if unsupported.
+     */
+    private long allocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean sunThreads
+                && sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+            return sunThreads.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static JvmTelemetryResponse.MemoryStats memoryStats(String name, String type, MemoryUsage usage) {
+        return new JvmTelemetryResponse.MemoryStats(name, type, usage.getUsed(), usage.getCommitted(),
+                usage.getMax());
+    }
+
+    /**
+     * Uptime as "1970-01-01 HH:mm:ss.SSS" (epoch-based time representation), built
+     * without String.format so polling stays cheap.
+     */
+    private static String formatUptime(long uptimeMs) {
+        StringBuilder time = new StringBuilder(23).append("1970-01-01 ");
+        appendPadded(time, uptimeMs / 3_600_000, 2).append(':');
+        appendPadded(time, (uptimeMs % 3_600_000) / 60_000, 2).append(':');
+        appendPadded(time, (uptimeMs % 60_000) / 1_000, 2).append('.');
+        return appendPadded(time, uptimeMs % 1_000, 3).toString();
+    }
+
+    /**
+     * Megabytes with two decimals, as "%.2f" would print them.
+     */
+    private static String formatMb(double megabytes) {
+        long hundredths = Math.round(megabytes * 100);
+        StringBuilder text = new StringBuilder().append(hundredths / 100).append('.');
+        return appendPadded(text, hundredths % 100, 2).toString();
+    }
+
+    private static StringBuilder appendPadded(StringBuilder out, long value, int width) {
+        long limit = 1;
+        for (int digit = 1; digit < width; digit++) {
+            limit *= 10;
+        }
+        for (; limit > 1 && value < limit; limit /= 10) {
+            out.append('0');
+        }
+        return out.append(value);
     }
 }
@@ -0,0 +1,110 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.engine.ProcessedBatch;
+import com.blackrock.challenge.engine.StageListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer meters for the filter and returns pipelines, tagged by operation:
+ * - challenge.pipeline.stage{stage}: time per {@link PipelineStage}, with a percentile histogram
+ * - challenge.pipeline.invalid.rows{reason}: rows rejected by validation or dedup
+ * - challenge.pipeline.batch.size: rows per request (distribution)
+ * - challenge.pipeline.batch.last: gauge of the row count of the latest request
+ *
+ * All meters are registered up front, so recording is a plain array lookup.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String FILTER = "filter";
+    public static final String RETURNS = "returns";
+
+    /** Tag value per ProcessedBatch status code. */
+    private static final String[] REASONS = { null, "negative_amount", "amount_too_large", "date_missing",
+            "date_invalid", "duplicate" };
+
+    private final Map<String, Operation> operations;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.operations = Map.of(
+                FILTER, new Operation(registry, FILTER),
+                RETURNS, new Operation(registry, RETURNS));
+    }
+
+    /**
+     * Listener recording stage timings for the given operation.
+     */
+    public StageListener stages(String operation) {
+        return operation(operation);
+    }
+
+    /**
+     * Batch size and the per-reason count of rejected rows of a processed batch.
+     */
+    public void recordBatch(String operation, ProcessedBatch processed) {
+        Operation meters = operation(operation);
+        meters.batchSize.record(processed.size());
+        meters.lastBatchSize.set(processed.size());
+        int[] counts = processed.statusCounts();
+        for (int status = 1; status < counts.length; status++) {
+            if (counts[status] > 0) {
+                meters.invalidRows[status].increment(counts[status]);
+            }
+        }
+    }
+
+    private Operation operation(String name) {
+        Operation operation = operations.get(name);
+        if (operation == null) {
+            throw new IllegalArgumentException("Unknown pipeline operation: " + name);
+        }
+        return operation;
+    }
+
+    private static final class Operation implements StageListener {
+
+        private final Timer[] stages = new Timer[PipelineStage.values().length];
+        private final Counter[] invalidRows = new Counter[REASONS.length];
+        private final DistributionSummary batchSize;
+        private final AtomicInteger lastBatchSize = new AtomicInteger();
+
+        Operation(MeterRegistry registry, String name) {
+            Tags tags = Tags.of("operation", name);
+            for (PipelineStage stage : PipelineStage.values()) {
+                stages[stage.ordinal()] = Timer.builder("challenge.pipeline.stage")
+                        .description("Time spent in one stage of the savings pipeline")
+                        .tags(tags).tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+            for (int status = 1; status < REASONS.length; status++) {
+                invalidRows[status] = Counter.builder("challenge.pipeline.invalid.rows")
+                        .description("Rows rejected by validation or dedup")
+                        .tags(tags).tag("reason", REASONS[status])
+                        .register(registry);
+            }
+            batchSize = DistributionSummary.builder("challenge.pipeline.batch.size")
+                    .description("Rows per request")
+                    .baseUnit("rows")
+                    .tags(tags)
+                    .register(registry);
+            registry.gauge("challenge.pipeline.batch.last", tags, lastBatchSize);
+        }
+
+        @Override
+        public void stage(PipelineStage stage, long nanos) {
+            stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
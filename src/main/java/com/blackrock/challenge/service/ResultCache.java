@@ -0,0 +1,294 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.model.KPeriod;
+import com.blackrock.challenge.model.PPeriod;
+import com.blackrock.challenge.model.QPeriod;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialized filter and returns responses, keyed by a canonical hash of the request.
+ *
+ * The key covers everything a result depends on (operation, response format, age,
+ * wage, inflation, projection, the resolved rule set's periods and the rows) in a
+ * fixed binary layout, so JSON spacing, field order, "transactions" vs "expenses",
+ * or inline periods vs an equal registered rule set make no difference. A hit hands
+ * back the stored bytes, skipping the pipeline and serialization alike; identical
+ * requests arriving while the first is still computing wait for its result
+ * (counted as coalesced, not as hits).
+ *
+ * Entries expire after {@code challenge.cache.ttl-seconds}; beyond
+ * {@code max-bytes} or {@code max-entries} the least recently used go first. A
+ * response larger than a quarter of {@code max-bytes} is served but not kept.
+ *
+ * Meters: challenge.cache.hits, challenge.cache.misses, challenge.cache.coalesced,
+ * challenge.cache.evictions{reason=size|expired}, and gauges challenge.cache.size
+ * (bytes) and challenge.cache.entries.
+ */
+@Service
+public final class ResultCache {
+
+    /** A serialized response and its strong ETag (quoted, derived from the bytes). */
+    public record Entry(byte[] body, String etag) {
+    }
+
+    /** Produces the serialized response on a miss. */
+    @FunctionalInterface
+    public interface Writer {
+        byte[] write() throws IOException;
+    }
+
+    private record Stored(String key, Entry entry, long expiresAt) {
+    }
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int maxEntries;
+    private final long ttlSeconds;
+
+    private final LinkedHashMap<String, Stored> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Stores in insertion order; with one TTL for all that is also expiry order, so
+    // expired entries are always at the head. Nodes of replaced or evicted entries
+    // are skipped when they get there, or dropped when they outnumber live ones.
+    private final ArrayDeque<Stored> expiries = new ArrayDeque<>();
+    private final Map<String, CompletableFuture<Entry>> pending = new ConcurrentHashMap<>();
+    private long bytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public ResultCache(MeterRegistry registry, @Value("${challenge.cache.enabled:true}") boolean enabled,
+            @Value("${challenge.cache.max-bytes:67108864}") long maxBytes,
+            @Value("${challenge.cache.max-entries:10000}") int maxEntries,
+            @Value("${challenge.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        this.ttlSeconds = ttlSeconds;
+        hits = Counter.builder("challenge.cache.hits").register(registry);
+        misses = Counter.builder("challenge.cache.misses").register(registry);
+        coalesced = Counter.builder("challenge.cache.coalesced").register(registry);
+        sizeEvictions = Counter.builder("challenge.cache.evictions").tag("reason", "size").register(registry);
+        expiredEvictions = Counter.builder("challenge.cache.evictions").tag("reason", "expired").register(registry);
+        Gauge.builder("challenge.cache.size", this, ResultCache::bytes).baseUnit("bytes").register(registry);
+        Gauge.builder("challenge.cache.entries", this, ResultCache::entries).register(registry);
+    }
+
+    /**
+     * The cached response for {@code key}, or the one {@code writer} produces, which
+     * is then stored. A writer that throws stores nothing; callers waiting on it get
+     * the same exception.
+     */
+    public Entry get(String key, Writer writer) throws IOException {
+        if (!enabled) {
+            return entry(writer.write());
+        }
+        Entry cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        CompletableFuture<Entry> computing = new CompletableFuture<>();
+        CompletableFuture<Entry> running = pending.putIfAbsent(key, computing);
+        if (running != null) {
+            coalesced.increment();
+            return await(running);
+        }
+        misses.increment();
+        try {
+            Entry entry = entry(writer.write());
+            store(key, entry);
+            computing.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException | Error e) {
+            computing.completeExceptionally(e);
+            throw e;
+        } finally {
+            pending.remove(key, computing);
+        }
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int entries() {
+        return entries.size();
+    }
+
+    /**
+     * Canonical key of a filter or returns request: SHA-256, in hex, of the operation,
+     * the response format and every input the result depends on.
+     */
+    public static String key(String operation, String format, FilterRequest request, RuleSet ruleSet) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            string(out, operation);
+            string(out, format);
+            out.writeInt(request.getAge());
+            out.writeLong(Double.doubleToRawLongBits(request.getWage()));
+            out.writeLong(Double.doubleToRawLongBits(request.getInflation()));
+            out.writeBoolean(request.isProjection());
+            out.writeInt(ruleSet.getQ().size());
+            for (QPeriod period : ruleSet.getQ()) {
+                string(out, period.getStart());
+                string(out, period.getEnd());
+                out.writeLong(Double.doubleToRawLongBits(period.getFixed()));
+            }
+            out.writeInt(ruleSet.getP().size());
+            for (PPeriod period : ruleSet.getP()) {
+                string(out, period.getStart());
+                string(out, period.getEnd());
+                out.writeLong(Double.doubleToRawLongBits(period.getExtra()));
+            }
+            out.writeInt(ruleSet.getK().size());
+            for (KPeriod period : ruleSet.getK()) {
+                string(out, period.getStart());
+                string(out, period.getEnd());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MessageDigest digest = sha256();
+        digest.update(header.toByteArray());
+        request.getTransactionBatch().digest(digest);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Whether an If-None-Match header names {@code etag}: "*", or any listed tag,
+     * compared weakly as RFC 9110 asks of If-None-Match.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.strip();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry entry(byte[] body) {
+        return new Entry(body, "\"" + HexFormat.of().formatHex(sha256().digest(body), 0, 16) + "\"");
+    }
+
+    private synchronized Entry lookup(String key) {
+        Stored stored = entries.get(key);
+        if (stored == null) {
+            return null;
+        }
+        if (stored.expiresAt() - System.nanoTime() <= 0) {
+            entries.remove(key);
+            bytes -= stored.entry().body().length;
+            expiredEvictions.increment();
+            return null;
+        }
+        return stored.entry();
+    }
+
+    private synchronized void store(String key, Entry entry) {
+        if (entry.body().length > maxBytes / 4) {
+            return;
+        }
+        long now = System.nanoTime();
+        // Expired entries go first, then the least recently used until everything fits
+        for (Stored head; (head = expiries.peekFirst()) != null && head.expiresAt() - now <= 0; ) {
+            expiries.pollFirst();
+            if (entries.remove(head.key(), head)) {
+                bytes -= head.entry().body().length;
+                expiredEvictions.increment();
+            }
+        }
+
+        Stored stored = new Stored(key, entry, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+        Stored previous = entries.put(key, stored);
+        if (previous != null) {
+            bytes -= previous.entry().body().length;
+        }
+        bytes += entry.body().length;
+        expiries.addLast(stored);
+
+        Iterator<Stored> it = entries.values().iterator();
+        while ((bytes > maxBytes || entries.size() > maxEntries) && it.hasNext()) {
+            Stored eldest = it.next();
+            if (eldest != stored) {
+                it.remove();
+                bytes -= eldest.entry().body().length;
+                sizeEvictions.increment();
+            }
+        }
+        if (expiries.size() > 2 * entries.size() + 64) {
+            Stored[] live = entries.values().toArray(new Stored[0]);
+            Arrays.sort(live, Comparator.comparingLong(s -> s.expiresAt() - now));
+            expiries.clear();
+            Collections.addAll(expiries, live);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static void string(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length());
+        out.writeChars(value);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
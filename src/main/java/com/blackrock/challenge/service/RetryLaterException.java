@@ -0,0 +1,23 @@
+package com.blackrock.challenge.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Work refused because the server is at capacity, with an estimate of when a retry
+ * is likely to be accepted. Answered with 503 and a Retry-After header.
+ */
+public class RetryLaterException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public RetryLaterException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,17 +1,25 @@
 package com.blackrock.challenge.service;
 
 import com.blackrock.challenge.dto.*;
+import com.blackrock.challenge.engine.GrowthFactorCache;
+import com.blackrock.challenge.engine.GrowthFactors;
+import com.blackrock.challenge.engine.KPeriodIndex;
+import com.blackrock.challenge.engine.ParameterSweep;
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.engine.ProcessedBatch;
+import com.blackrock.challenge.engine.ReturnSimulator;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.SavingsPipeline;
+import com.blackrock.challenge.engine.StageListener;
 import com.blackrock.challenge.model.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.ResolverStyle;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 
 @Service
 public class ReturnsService {
@@ -19,26 +27,274 @@ public class ReturnsService {
     private static final double NPS_RATE = 0.0711;
     private static final double INDEX_RATE = 0.1449;
     private static final int RETIREMENT_AGE = 60;
-
-    private static final DateTimeFormatter STRICT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    private static final DateTimeFormatter LENIENT_FORMATTER = new DateTimeFormatterBuilder()
-            .appendPattern("yyyy-MM-dd HH:mm:ss")
-            .toFormatter()
-            .withResolverStyle(ResolverStyle.LENIENT);
+    private static final List<Double> DEFAULT_PERCENTILES = List.of(5.0, 25.0, 50.0, 75.0, 95.0);
+
+    /** Largest number of values on one sweep axis. */
+    private static final int MAX_AXIS_VALUES = 1000;
+
+    private final TaxService taxService;
+    private final PipelineMetrics metrics;
+
+    private final GrowthFactorCache growthFactors = new GrowthFactorCache(4096);
+
+    /** Batches of at least this many rows run through the pipeline in parallel. */
+    private final int parallelThreshold;
+
+    /** Standard deviations of the annual NPS return, index return and inflation in simulations. */
+    private final double npsVolatility;
+    private final double indexVolatility;
+    private final double inflationVolatility;
+
+    private final int maxPaths;
+
+    /** Largest age × inflation × rate grid a sweep evaluates. */
+    private final int maxSweepPoints;
+
+    public ReturnsService(TaxService taxService, PipelineMetrics metrics,
+            @Value("${challenge.parallel.threshold:50000}") int parallelThreshold,
+            @Value("${challenge.simulation.nps-volatility:0.08}") double npsVolatility,
+            @Value("${challenge.simulation.index-volatility:0.16}") double indexVolatility,
+            @Value("${challenge.simulation.inflation-volatility:0.015}") double inflationVolatility,
+            @Value("${challenge.simulation.max-paths:1000000}") int maxPaths,
+            @Value("${challenge.sweep.max-points:100000}") int maxSweepPoints) {
+        this.taxService = taxService;
+        this.metrics = metrics;
+        this.parallelThreshold = parallelThreshold;
+        this.npsVolatility = npsVolatility;
+        this.indexVolatility = indexVolatility;
+        this.inflationVolatility = inflationVolatility;
+        this.maxPaths = maxPaths;
+        this.maxSweepPoints = maxSweepPoints;
+    }
 
     /**
      * Calculate NPS returns with tax benefit per k-period.
      */
     public ReturnsResponse calculateNPS(FilterRequest request) {
-        return calculateReturns(request, NPS_RATE, true);
+        return calculateNPS(request, RuleSet.compile(request.getQ(), request.getP(), request.getK()));
+    }
+
+    public ReturnsResponse calculateNPS(FilterRequest request, RuleSet ruleSet) {
+        return calculateNPS(request, ruleSet, StageListener.NONE);
+    }
+
+    /**
+     * As {@link #calculateNPS(FilterRequest, RuleSet)}, also telling {@code progress}
+     * as each pipeline stage completes.
+     */
+    public ReturnsResponse calculateNPS(FilterRequest request, RuleSet ruleSet, StageListener progress) {
+        return calculateReturns(request, ruleSet, NPS_RATE, true, progress);
     }
 
     /**
      * Calculate Index Fund returns (no tax benefit) per k-period.
      */
     public ReturnsResponse calculateIndex(FilterRequest request) {
-        return calculateReturns(request, INDEX_RATE, false);
+        return calculateIndex(request, RuleSet.compile(request.getQ(), request.getP(), request.getK()));
+    }
+
+    public ReturnsResponse calculateIndex(FilterRequest request, RuleSet ruleSet) {
+        return calculateIndex(request, ruleSet, StageListener.NONE);
+    }
+
+    public ReturnsResponse calculateIndex(FilterRequest request, RuleSet ruleSet, StageListener progress) {
+        return calculateReturns(request, ruleSet, INDEX_RATE, false, progress);
+    }
+
+    /**
+     * NPS and Index side by side from a single pipeline run: validation, dedup,
+     * q/p rules and k sums are computed once and shared by both instruments.
+     */
+    public ReturnsComparisonResponse compare(FilterRequest request) {
+        return compare(request, RuleSet.compile(request.getQ(), request.getP(), request.getK()));
+    }
+
+    public ReturnsComparisonResponse compare(FilterRequest request, RuleSet ruleSet) {
+        return compare(request, ruleSet, StageListener.NONE);
+    }
+
+    public ReturnsComparisonResponse compare(FilterRequest request, RuleSet ruleSet, StageListener progress) {
+        StageListener stages = metrics.stages(PipelineMetrics.RETURNS).andThen(progress);
+        ProcessedBatch processed = SavingsPipeline.process(request.getTransactionBatch(), ruleSet,
+                parallelThreshold, stages);
+        metrics.recordBatch(PipelineMetrics.RETURNS, processed);
+
+        long start = System.nanoTime();
+        double totalTransactionAmount = processed.totalAmount();
+        double totalCeiling = processed.totalCeiling();
+        double[] kSums = ruleSet.kIndex().sums(processed.prefixSums());
+        long kDone = System.nanoTime();
+        stages.stage(PipelineStage.K, kDone - start);
+
+        ReturnsComparisonResponse response = new ReturnsComparisonResponse(
+                buildReturns(request, ruleSet.getK(), totalTransactionAmount, totalCeiling, kSums, NPS_RATE, true),
+                buildReturns(request, ruleSet.getK(), totalTransactionAmount, totalCeiling, kSums, INDEX_RATE,
+                        false));
+        stages.stage(PipelineStage.RETURNS, System.nanoTime() - kDone);
+        return response;
+    }
+
+    /**
+     * Returns from totals and k sums that were aggregated elsewhere, e.g. a ledger's
+     * running totals. Only age, wage, inflation and projection are read from params.
+     */
+    public ReturnsResponse calculateNPS(FilterRequest params, List<KPeriod> kPeriods, double totalTransactionAmount,
+            double totalCeiling, double[] kSums) {
+        return buildReturns(params, kPeriods, totalTransactionAmount, totalCeiling, kSums, NPS_RATE, true);
+    }
+
+    public ReturnsResponse calculateIndex(FilterRequest params, List<KPeriod> kPeriods,
+            double totalTransactionAmount, double totalCeiling, double[] kSums) {
+        return buildReturns(params, kPeriods, totalTransactionAmount, totalCeiling, kSums, INDEX_RATE, false);
+    }
+
+    /**
+     * Monte Carlo variant of {@link #calculateNPS} / {@link #calculateIndex}: the
+     * pipeline and k sums run once, then {@code paths} return and inflation paths
+     * (mean = the fixed rate and the request's inflation) are drawn on the common
+     * ForkJoinPool. Each k period reports its corpus at the given percentiles. The
+     * same seed always gives the same response.
+     *
+     * @param instrument  "nps" (with tax benefit) or "index"
+     * @param percentiles 0-100; null for 5, 25, 50, 75 and 95
+     */
+    public SimulationResponse simulate(FilterRequest request, RuleSet ruleSet, String instrument, int paths,
+            long seed, List<Double> percentiles) {
+        boolean nps = isNps(instrument);
+        if (paths < 1 || paths > maxPaths) {
+            throw new IllegalArgumentException("paths must be between 1 and " + maxPaths);
+        }
+        List<Double> levels = new ArrayList<>(percentiles == null || percentiles.isEmpty()
+                ? DEFAULT_PERCENTILES
+                : percentiles);
+        for (Double level : levels) {
+            if (level == null || !(level >= 0 && level <= 100)) {
+                throw new IllegalArgumentException("Percentiles must be between 0 and 100, got " + level);
+            }
+        }
+        levels.sort(null);
+
+        StageListener stages = metrics.stages(PipelineMetrics.RETURNS);
+        ProcessedBatch processed = SavingsPipeline.process(request.getTransactionBatch(), ruleSet,
+                parallelThreshold, stages);
+        metrics.recordBatch(PipelineMetrics.RETURNS, processed);
+
+        long start = System.nanoTime();
+        double[] kSums = ruleSet.kIndex().sums(processed.prefixSums());
+        long kDone = System.nanoTime();
+        stages.stage(PipelineStage.K, kDone - start);
+
+        double inflation = fraction(request.getInflation());
+        int years = RETIREMENT_AGE - request.getAge();
+        ReturnSimulator.Distribution distribution = ReturnSimulator.simulate(nps ? NPS_RATE : INDEX_RATE,
+                nps ? npsVolatility : indexVolatility, inflation, inflationVolatility, years, paths, seed,
+                ForkJoinPool.commonPool());
+        double[] taxBenefits = nps ? taxService.calculateNPSTaxBenefit(kSums, request.getWage()) : null;
+
+        List<KPeriod> kPeriods = ruleSet.getK();
+        List<SimulationResponse.KPeriodOutcomes> savingsByDates = new ArrayList<>(kPeriods.size());
+        for (int j = 0; j < kPeriods.size(); j++) {
+            double sum = kSums[j];
+            List<SimulationResponse.Outcome> outcomes = new ArrayList<>(levels.size());
+            for (double level : levels) {
+                // Corpus scales with the multiplier; a negative sum turns the ranking around
+                double rank = sum >= 0 ? level : 100 - level;
+                double real = sum * distribution.real(rank);
+                outcomes.add(new SimulationResponse.Outcome(level, round2(sum * distribution.nominal(rank)),
+                        round2(real), round2(real - sum)));
+            }
+            savingsByDates.add(new SimulationResponse.KPeriodOutcomes(kPeriods.get(j).getStart(),
+                    kPeriods.get(j).getEnd(), round2(sum), nps ? round2(taxBenefits[j]) : 0.0, outcomes));
+        }
+        SimulationResponse response = new SimulationResponse(nps ? "nps" : "index", paths, seed, Math.max(years, 0),
+                processed.totalAmount(), processed.totalCeiling(), savingsByDates);
+        stages.stage(PipelineStage.RETURNS, System.nanoTime() - kDone);
+        return response;
+    }
+
+    /**
+     * Returns over a grid of ages, inflation rates, return rates and wages. The
+     * pipeline and k sums run once; every grid point is then a few arithmetic
+     * operations per k period (see {@link ParameterSweep}), so a 10×10×10 grid costs
+     * about as much as one returns request. Profit is evaluated over age × inflation
+     * × rate and the NPS tax benefit over wage, matching what a returns call for the
+     * same parameters would report.
+     *
+     * @param instrument "nps" or "index"; picks the default rate and whether tax
+     *                   benefits are computed
+     */
+    public SweepResponse sweep(SweepRequest request, RuleSet ruleSet, String instrument) {
+        boolean nps = isNps(instrument);
+        SweepRequest.Grid grid = request.getSweep() != null ? request.getSweep() : new SweepRequest.Grid();
+        double[] ages = axis(grid.getAge(), "age", request.getAge());
+        double[] inflations = axis(grid.getInflation(), "inflation", request.getInflation());
+        double[] rates = axis(grid.getRate(), "rate", nps ? NPS_RATE : INDEX_RATE);
+        double[] wages = axis(grid.getWage(), "wage", request.getWage());
+        if ((long) ages.length * inflations.length * rates.length > maxSweepPoints) {
+            throw new IllegalArgumentException("A sweep is limited to " + maxSweepPoints
+                    + " age × inflation × rate combinations");
+        }
+        int[] years = new int[ages.length];
+        for (int a = 0; a < ages.length; a++) {
+            if (ages[a] != Math.rint(ages[a])) {
+                throw new IllegalArgumentException("Ages must be whole years, got " + ages[a]);
+            }
+            years[a] = RETIREMENT_AGE - (int) ages[a];
+        }
+        double[] inflationFractions = new double[inflations.length];
+        for (int i = 0; i < inflations.length; i++) {
+            inflationFractions[i] = fraction(inflations[i]);
+        }
+        double[] rateFractions = new double[rates.length];
+        for (int r = 0; r < rates.length; r++) {
+            rateFractions[r] = fraction(rates[r]);
+        }
+
+        StageListener stages = metrics.stages(PipelineMetrics.RETURNS);
+        ProcessedBatch processed = SavingsPipeline.process(request.getTransactionBatch(), ruleSet,
+                parallelThreshold, stages);
+        metrics.recordBatch(PipelineMetrics.RETURNS, processed);
+
+        long start = System.nanoTime();
+        double[] kSums = ruleSet.kIndex().sums(processed.prefixSums());
+        long kDone = System.nanoTime();
+        stages.stage(PipelineStage.K, kDone - start);
+
+        double[] profits = ParameterSweep.profits(kSums, years, inflationFractions, rateFractions,
+                ForkJoinPool.commonPool());
+        int k = kSums.length;
+        List<SweepResponse.Point> points = new ArrayList<>(profits.length / Math.max(k, 1));
+        int index = 0;
+        for (double age : ages) {
+            for (double inflation : inflations) {
+                for (double rate : rates) {
+                    points.add(new SweepResponse.Point((int) age, inflation, rate,
+                            Arrays.copyOfRange(profits, index * k, (index + 1) * k)));
+                    index++;
+                }
+            }
+        }
+
+        List<SweepResponse.WageBenefit> taxBenefits = new ArrayList<>();
+        if (nps) {
+            for (double wage : wages) {
+                double[] benefits = taxService.calculateNPSTaxBenefit(kSums, wage);
+                for (int j = 0; j < k; j++) {
+                    benefits[j] = round2(benefits[j]);
+                }
+                taxBenefits.add(new SweepResponse.WageBenefit(wage, benefits));
+            }
+        }
+
+        List<KPeriod> kPeriods = ruleSet.getK();
+        List<KPeriodTotal> totals = new ArrayList<>(k);
+        for (int j = 0; j < k; j++) {
+            totals.add(new KPeriodTotal(kPeriods.get(j).getStart(), kPeriods.get(j).getEnd(), round2(kSums[j])));
+        }
+        SweepResponse response = new SweepResponse(nps ? "nps" : "index", processed.totalAmount(),
+                processed.totalCeiling(), totals, points, taxBenefits);
+        stages.stage(PipelineStage.RETURNS, System.nanoTime() - kDone);
+        return response;
     }
 
     /**
@@ -50,15 +306,38 @@ public class ReturnsService {
      * 5. Sum savings per k-period
      * 6. Calculate returns, profit, tax benefit per k-period
      */
-    private ReturnsResponse calculateReturns(FilterRequest request, double rate, boolean includeTaxBenefit) {
-        List<Expense> expenses = request.getExpenses();
-        if (expenses == null)
-            expenses = new ArrayList<>();
+    private ReturnsResponse calculateReturns(FilterRequest request, RuleSet ruleSet, double rate,
+            boolean includeTaxBenefit, StageListener progress) {
+        KPeriodIndex kIndex = ruleSet.kIndex();
+        StageListener stages = metrics.stages(PipelineMetrics.RETURNS).andThen(progress);
 
-        List<QPeriod> qPeriods = request.getQ() != null ? request.getQ() : new ArrayList<>();
-        List<PPeriod> pPeriods = request.getP() != null ? request.getP() : new ArrayList<>();
-        List<KPeriod> kPeriods = request.getK() != null ? request.getK() : new ArrayList<>();
+        // Steps 1-4: validate, dedup, enrich and apply q/p rules over the columnar batch
+        ProcessedBatch processed = SavingsPipeline.process(request.getTransactionBatch(), ruleSet,
+                parallelThreshold, stages);
+        metrics.recordBatch(PipelineMetrics.RETURNS, processed);
 
+        // Calculate totals
+        long start = System.nanoTime();
+        double totalTransactionAmount = processed.totalAmount();
+        double totalCeiling = processed.totalCeiling();
+
+        // Step 5: Group by k-periods.
+        // Each k sum is two binary searches over epoch-sorted prefix sums.
+        double[] kSums = kIndex.sums(processed.prefixSums());
+        long kDone = System.nanoTime();
+        stages.stage(PipelineStage.K, kDone - start);
+
+        ReturnsResponse response = buildReturns(request, ruleSet.getK(), totalTransactionAmount, totalCeiling,
+                kSums, rate, includeTaxBenefit);
+        stages.stage(PipelineStage.RETURNS, System.nanoTime() - kDone);
+        return response;
+    }
+
+    /**
+     * Step 6: returns, profit and tax benefit per k-period from the k sums.
+     */
+    private ReturnsResponse buildReturns(FilterRequest request, List<KPeriod> kPeriods, double totalTransactionAmount,
+            double totalCeiling, double[] kSums, double rate, boolean includeTaxBenefit) {
         int age = request.getAge();
         double wage = request.getWage();
         double inflation = request.getInflation();
@@ -70,113 +349,33 @@ public class ReturnsService {
 
         int years = RETIREMENT_AGE - age;
 
-        // Pre-parse period date ranges
-        List<LocalDateTime[]> qRanges = parsePeriodRanges(qPeriods);
-        List<LocalDateTime[]> pRanges = parsePeriodRangesP(pPeriods);
-        List<LocalDateTime[]> kRanges = parsePeriodRangesK(kPeriods);
-
-        // Step 1: Validate and process transactions
-        Set<String> seenDates = new HashSet<>();
-        List<Double> validAmounts = new ArrayList<>();
-        List<Double> validCeilings = new ArrayList<>();
-        List<Double> validRemanents = new ArrayList<>();
-        List<LocalDateTime> validDates = new ArrayList<>();
-
-        for (Expense expense : expenses) {
-            double amount = expense.getAmount();
-            String date = expense.getDate();
-
-            // Skip negative amounts
-            if (amount < 0)
-                continue;
-            // Skip amounts >= 500000
-            if (amount >= 500000)
-                continue;
-            // Skip invalid dates
-            if (date == null || date.isEmpty())
-                continue;
-
-            LocalDateTime expDate;
-            try {
-                expDate = LocalDateTime.parse(date, STRICT_FORMATTER);
-            } catch (Exception e) {
-                continue;
-            }
+        // (1 + rate)^years and (1 + inflation)^years are shared by every k-period and cached across requests
+        GrowthFactors growth = growthFactors.get(rate, inflation, years);
 
-            // Skip duplicate dates
-            if (!seenDates.add(date))
-                continue;
-
-            // Compute ceiling and remanent
-            double ceiling = computeCeiling(amount);
-            double remanent = ceiling - amount;
-
-            // Apply q-period rules (latest start wins)
-            int bestQIndex = -1;
-            LocalDateTime bestQStart = null;
-            for (int j = 0; j < qPeriods.size(); j++) {
-                LocalDateTime qStart = qRanges.get(j)[0];
-                LocalDateTime qEnd = qRanges.get(j)[1];
-                if (!expDate.isBefore(qStart) && !expDate.isAfter(qEnd)) {
-                    if (bestQIndex == -1 || qStart.isAfter(bestQStart)) {
-                        bestQIndex = j;
-                        bestQStart = qStart;
-                    }
-                }
-            }
-            if (bestQIndex != -1) {
-                remanent = qPeriods.get(bestQIndex).getFixed();
-            }
-
-            // Apply p-period rules (all extras stack)
-            for (int j = 0; j < pPeriods.size(); j++) {
-                LocalDateTime pStart = pRanges.get(j)[0];
-                LocalDateTime pEnd = pRanges.get(j)[1];
-                if (!expDate.isBefore(pStart) && !expDate.isAfter(pEnd)) {
-                    remanent += pPeriods.get(j).getExtra();
-                }
-            }
+        // Tax benefit (only for NPS): Tax(wage) is evaluated once for all k-periods
+        double[] taxBenefits = includeTaxBenefit ? taxService.calculateNPSTaxBenefit(kSums, wage) : null;
 
-            validAmounts.add(amount);
-            validCeilings.add(ceiling);
-            validRemanents.add(remanent);
-            validDates.add(expDate);
-        }
-
-        // Calculate totals
-        double totalTransactionAmount = validAmounts.stream().mapToDouble(Double::doubleValue).sum();
-        double totalCeiling = validCeilings.stream().mapToDouble(Double::doubleValue).sum();
-
-        // Step 5: Group by k-periods and calculate returns
         List<KPeriodSavings> savingsByDates = new ArrayList<>();
 
         for (int j = 0; j < kPeriods.size(); j++) {
-            LocalDateTime kStart = kRanges.get(j)[0];
-            LocalDateTime kEnd = kRanges.get(j)[1];
-            double sum = 0;
-
-            for (int i = 0; i < validDates.size(); i++) {
-                if (!validDates.get(i).isBefore(kStart) && !validDates.get(i).isAfter(kEnd)) {
-                    sum += validRemanents.get(i);
-                }
-            }
+            double sum = kSums[j];
 
             // Calculate inflation-adjusted returns
             double invested = sum;
-            double futureValue = invested * Math.pow(1 + rate, years);
-            double inflationAdjusted = futureValue / Math.pow(1 + inflation, years);
+            double futureValue = invested * growth.growth();
+            double inflationAdjusted = futureValue / growth.deflator();
             double profit = round2(inflationAdjusted - invested);
 
-            // Tax benefit (only for NPS)
-            double taxBenefit = 0.0;
-            if (includeTaxBenefit) {
-                taxBenefit = round2(calculateTaxBenefit(invested, wage));
-            }
+            double taxBenefit = includeTaxBenefit ? round2(taxBenefits[j]) : 0.0;
 
-            savingsByDates.add(new KPeriodSavings(
+            KPeriodSavings savings = new KPeriodSavings(
                     kPeriods.get(j).getStart(),
                     kPeriods.get(j).getEnd(),
-                    sum, profit, taxBenefit));
+                    round2(sum), profit, taxBenefit);
+            if (request.isProjection()) {
+                savings.setProjection(project(invested, age, growth));
+            }
+            savingsByDates.add(savings);
         }
 
         return new ReturnsResponse(totalTransactionAmount, totalCeiling, savingsByDates);
@@ -184,75 +383,43 @@ public class ReturnsService {
 
     // ========== Helper methods ==========
 
-    private double computeCeiling(double amount) {
-        double remainder = amount % 100;
-        if (remainder == 0)
-            return amount;
-        return amount + (100 - remainder);
-    }
-
-    private double calculateTaxBenefit(double invested, double wage) {
-        double eligibleDeduction = Math.min(invested, Math.min(wage * 0.10, 200000));
-        double taxWithout = calculateSimpleTax(wage);
-        double taxWith = calculateSimpleTax(wage - eligibleDeduction);
-        return taxWithout - taxWith;
-    }
-
-    private double calculateSimpleTax(double income) {
-        if (income <= 700000)
-            return 0;
-        double tax = 0;
-        if (income > 1500000) {
-            tax += (income - 1500000) * 0.30;
-            income = 1500000;
-        }
-        if (income > 1200000) {
-            tax += (income - 1200000) * 0.20;
-            income = 1200000;
-        }
-        if (income > 1000000) {
-            tax += (income - 1000000) * 0.15;
-            income = 1000000;
-        }
-        if (income > 700000) {
-            tax += (income - 700000) * 0.10;
+    /**
+     * Corpus for every year from today's age up to retirement, nominal and in today's money.
+     */
+    private List<ProjectionPoint> project(double invested, int age, GrowthFactors growth) {
+        List<ProjectionPoint> points = new ArrayList<>(growth.years() + 1);
+        for (int y = 0; y <= growth.years(); y++) {
+            double nominal = invested * growth.growth(y);
+            points.add(new ProjectionPoint(age + y, round2(nominal), round2(nominal / growth.deflator(y))));
         }
-        return tax;
+        return points;
     }
 
-    private double round2(double value) {
-        return Math.round(value * 100.0) / 100.0;
-    }
-
-    private LocalDateTime parseLenient(String dateStr) {
-        try {
-            return LocalDateTime.parse(dateStr, LENIENT_FORMATTER);
-        } catch (Exception e) {
-            return LocalDateTime.parse(dateStr, STRICT_FORMATTER);
-        }
+    private static boolean isNps(String instrument) {
+        return switch (instrument.toLowerCase(Locale.ROOT)) {
+            case "nps" -> true;
+            case "index" -> false;
+            default -> throw new IllegalArgumentException("Unknown instrument: " + instrument
+                    + " (expected nps or index)");
+        };
     }
 
-    private List<LocalDateTime[]> parsePeriodRanges(List<QPeriod> periods) {
-        List<LocalDateTime[]> ranges = new ArrayList<>();
-        for (QPeriod p : periods) {
-            ranges.add(new LocalDateTime[] { parseLenient(p.getStart()), parseLenient(p.getEnd()) });
-        }
-        return ranges;
+    /**
+     * Percentages above 1 (5.5) as fractions (0.055); fractions pass through.
+     */
+    private static double fraction(double rate) {
+        return Math.abs(rate) > 1.0 ? rate / 100.0 : rate;
     }
 
-    private List<LocalDateTime[]> parsePeriodRangesP(List<PPeriod> periods) {
-        List<LocalDateTime[]> ranges = new ArrayList<>();
-        for (PPeriod p : periods) {
-            ranges.add(new LocalDateTime[] { parseLenient(p.getStart()), parseLenient(p.getEnd()) });
-        }
-        return ranges;
+    private static double[] axis(SweepRequest.Axis axis, String name, double fallback) {
+        return axis == null ? new double[] { fallback } : axis.points(name, MAX_AXIS_VALUES);
     }
 
-    private List<LocalDateTime[]> parsePeriodRangesK(List<KPeriod> periods) {
-        List<LocalDateTime[]> ranges = new ArrayList<>();
-        for (KPeriod p : periods) {
-            ranges.add(new LocalDateTime[] { parseLenient(p.getStart()), parseLenient(p.getEnd()) });
-        }
-        return ranges;
+    /**
+     * Money field rounded to cents. k sums are rounded only on the way out: they are
+     * compensated sums in date order, so their last bits differ from an input-order sum.
+     */
+    static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
     }
 }
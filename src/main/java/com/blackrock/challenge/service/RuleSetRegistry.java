@@ -0,0 +1,85 @@
+package com.blackrock.challenge.service;
+
+import com.blackrock.challenge.dto.FilterRequest;
+import com.blackrock.challenge.dto.RuleSetRequest;
+import com.blackrock.challenge.engine.RuleSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-side registry of precompiled q/p/k rule sets.
+ * Rule sets are registered once and referenced by id from filter/returns requests,
+ * so their periods are parsed and indexed only at registration time.
+ * Stored snapshots are immutable; a changed rule set is registered under a new id.
+ * A full registry refuses registrations with {@link RetryLaterException} until rule
+ * sets are removed.
+ */
+@Service
+public class RuleSetRegistry {
+
+    /** Seconds a client is told to wait; slots free up only when rule sets are removed. */
+    private static final long RETRY_AFTER_SECONDS = 60;
+
+    private final Map<String, RuleSet> ruleSets = new ConcurrentHashMap<>();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final int maxEntries;
+
+    public RuleSetRegistry(@Value("${challenge.rules.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @throws RetryLaterException when the registry already holds {@code maxEntries} rule sets
+     */
+    public String register(RuleSetRequest request) {
+        // Reserve the slot before compiling, so concurrent registrations cannot overshoot the cap
+        if (reserved.getAndUpdate(n -> n < maxEntries ? n + 1 : n) >= maxEntries) {
+            throw new RetryLaterException("Rule set registry is full (" + maxEntries + " entries)",
+                    RETRY_AFTER_SECONDS);
+        }
+        try {
+            RuleSet ruleSet = RuleSet.compile(request.getQ(), request.getP(), request.getK());
+            String id = UUID.randomUUID().toString();
+            ruleSets.put(id, ruleSet);
+            return id;
+        } catch (RuntimeException e) {
+            reserved.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public RuleSet get(String id) {
+        RuleSet ruleSet = ruleSets.get(id);
+        if (ruleSet == null) {
+            throw new NoSuchElementException("Unknown rule set: " + id);
+        }
+        return ruleSet;
+    }
+
+    public void remove(String id) {
+        if (ruleSets.remove(id) == null) {
+            throw new NoSuchElementException("Unknown rule set: " + id);
+        }
+        reserved.decrementAndGet();
+    }
+
+    /**
+     * Rule set for a filter/returns request: the registered snapshot when the request
+     * references one by id, otherwise its inline periods compiled on the spot.
+     */
+    public RuleSet resolve(FilterRequest request) {
+        if (request.getRuleSetId() == null) {
+            return RuleSet.compile(request.getQ(), request.getP(), request.getK());
+        }
+        if (request.getQ() != null || request.getP() != null || request.getK() != null) {
+            throw new IllegalArgumentException("Provide either ruleSetId or inline q/p/k periods, not both");
+        }
+        return get(request.getRuleSetId());
+    }
+}
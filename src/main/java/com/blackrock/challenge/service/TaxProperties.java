@@ -0,0 +1,74 @@
+package com.blackrock.challenge.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tax regimes, bound from {@code challenge.tax.*}:
+ *
+ * challenge.tax.regime=old
+ * challenge.tax.regimes.old[0].from=0
+ * challenge.tax.regimes.old[0].rate=0
+ * challenge.tax.regimes.old[1].from=250000
+ * challenge.tax.regimes.old[1].rate=0.05
+ *
+ * The built-in "simplified" regime is always available.
+ */
+@ConfigurationProperties(prefix = "challenge.tax")
+public class TaxProperties {
+
+    /** Regime used for tax and NPS benefit calculations. */
+    private String regime = TaxService.DEFAULT_REGIME;
+
+    /** Additional regimes by name; slabs in ascending order of their lower bound. */
+    private Map<String, List<Slab>> regimes = new LinkedHashMap<>();
+
+    public String getRegime() {
+        return regime;
+    }
+
+    public void setRegime(String regime) {
+        this.regime = regime;
+    }
+
+    public Map<String, List<Slab>> getRegimes() {
+        return regimes;
+    }
+
+    public void setRegimes(Map<String, List<Slab>> regimes) {
+        this.regimes = regimes;
+    }
+
+    public static class Slab {
+
+        private double from;
+        private double rate;
+
+        public Slab() {
+        }
+
+        public Slab(double from, double rate) {
+            this.from = from;
+            this.rate = rate;
+        }
+
+        public double getFrom() {
+            return from;
+        }
+
+        public void setFrom(double from) {
+            this.from = from;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.blackrock.challenge.service;
 
+import com.blackrock.challenge.engine.TaxSlabTable;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
 /**
  * Indian simplified tax calculator.
  * Tax slabs (new regime, simplified - no standard deductions):
@@ -10,41 +17,53 @@ import org.springframework.stereotype.Service;
  * 10,00,001 - 12,00,000: 15%
  * 12,00,001 - 15,00,000: 20%
  * Above 15,00,000 : 30%
+ *
+ * Slabs are evaluated through a precomputed {@link TaxSlabTable}. Other regimes can
+ * be configured under {@code challenge.tax.regimes} and selected with
+ * {@code challenge.tax.regime} (see {@link TaxProperties}).
  */
 @Service
+@EnableConfigurationProperties(TaxProperties.class)
 public class TaxService {
 
-    public double calculateTax(double income) {
-        if (income <= 700000) {
-            return 0.0;
-        }
+    public static final String DEFAULT_REGIME = "simplified";
 
-        double tax = 0.0;
+    private static final TaxSlabTable SIMPLIFIED = TaxSlabTable.of(
+            new double[] { 0, 700000, 1000000, 1200000, 1500000 },
+            new double[] { 0.0, 0.10, 0.15, 0.20, 0.30 });
 
-        // Above 15L: 30%
-        if (income > 1500000) {
-            tax += (income - 1500000) * 0.30;
-            income = 1500000;
-        }
+    private static final double NPS_DEDUCTION_WAGE_SHARE = 0.10;
+    private static final double NPS_DEDUCTION_CAP = 200000;
 
-        // 12L - 15L: 20%
-        if (income > 1200000) {
-            tax += (income - 1200000) * 0.20;
-            income = 1200000;
-        }
+    private final Map<String, TaxSlabTable> regimes;
+    private final TaxSlabTable active;
 
-        // 10L - 12L: 15%
-        if (income > 1000000) {
-            tax += (income - 1000000) * 0.15;
-            income = 1000000;
+    /**
+     * Compiles the configured regimes; an invalid table or unknown active regime fails startup.
+     */
+    public TaxService(TaxProperties properties) {
+        Map<String, TaxSlabTable> compiled = new LinkedHashMap<>();
+        compiled.put(DEFAULT_REGIME, SIMPLIFIED);
+        properties.getRegimes().forEach((name, slabs) -> compiled.put(name, compile(name, slabs)));
+        TaxSlabTable selected = compiled.get(properties.getRegime());
+        if (selected == null) {
+            throw new IllegalArgumentException("Unknown tax regime: " + properties.getRegime());
         }
+        regimes = Map.copyOf(compiled);
+        active = selected;
+    }
 
-        // 7L - 10L: 10%
-        if (income > 700000) {
-            tax += (income - 700000) * 0.10;
-        }
+    public double calculateTax(double income) {
+        return active.tax(income);
+    }
 
-        return tax;
+    /**
+     * Bulk variant of {@link #calculateTax(double)}.
+     */
+    public double[] calculateTax(double[] incomes) {
+        double[] taxes = new double[incomes.length];
+        active.taxAll(incomes, taxes, incomes.length);
+        return taxes;
     }
 
     /**
@@ -53,9 +72,48 @@ public class TaxService {
      * Benefit = Tax(wage) - Tax(wage - eligible_deduction)
      */
     public double calculateNPSTaxBenefit(double invested, double wage) {
-        double eligibleDeduction = Math.min(invested, Math.min(wage * 0.10, 200000));
-        double taxWithoutDeduction = calculateTax(wage);
-        double taxWithDeduction = calculateTax(wage - eligibleDeduction);
-        return taxWithoutDeduction - taxWithDeduction;
+        return active.tax(wage) - active.tax(wage - eligibleDeduction(invested, wage));
+    }
+
+    /**
+     * Bulk NPS tax benefit for several invested amounts at one wage; Tax(wage) is
+     * computed once for the whole array.
+     */
+    public double[] calculateNPSTaxBenefit(double[] invested, double wage) {
+        double taxWithoutDeduction = active.tax(wage);
+        double[] benefits = new double[invested.length];
+        for (int i = 0; i < invested.length; i++) {
+            benefits[i] = taxWithoutDeduction - active.tax(wage - eligibleDeduction(invested[i], wage));
+        }
+        return benefits;
+    }
+
+    /**
+     * Compiled slab table of a configured regime.
+     */
+    public TaxSlabTable regime(String name) {
+        TaxSlabTable table = regimes.get(name);
+        if (table == null) {
+            throw new NoSuchElementException("Unknown tax regime: " + name);
+        }
+        return table;
+    }
+
+    private static double eligibleDeduction(double invested, double wage) {
+        return Math.min(invested, Math.min(wage * NPS_DEDUCTION_WAGE_SHARE, NPS_DEDUCTION_CAP));
+    }
+
+    private static TaxSlabTable compile(String name, List<TaxProperties.Slab> slabs) {
+        double[] from = new double[slabs.size()];
+        double[] rate = new double[slabs.size()];
+        for (int i = 0; i < slabs.size(); i++) {
+            from[i] = slabs.get(i).getFrom();
+            rate[i] = slabs.get(i).getRate();
+        }
+        try {
+            return TaxSlabTable.of(from, rate);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tax regime " + name + ": " + e.getMessage(), e);
+        }
     }
 }
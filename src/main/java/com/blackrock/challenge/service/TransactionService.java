@@ -1,27 +1,38 @@
 package com.blackrock.challenge.service;
 
 import com.blackrock.challenge.dto.*;
+import com.blackrock.challenge.engine.KPeriodIndex;
+import com.blackrock.challenge.engine.LongHashSet;
+import com.blackrock.challenge.engine.PipelineStage;
+import com.blackrock.challenge.engine.ProcessedBatch;
+import com.blackrock.challenge.engine.RuleSet;
+import com.blackrock.challenge.engine.SavingsPipeline;
+import com.blackrock.challenge.engine.StageListener;
+import com.blackrock.challenge.engine.TimestampParser;
 import com.blackrock.challenge.model.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.format.ResolverStyle;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 @Service
 public class TransactionService {
 
-    private static final DateTimeFormatter STRICT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /** Batches of at least this many rows run through the pipeline in parallel. */
+    @Value("${challenge.parallel.threshold:50000}")
+    private int parallelThreshold = SavingsPipeline.DEFAULT_PARALLEL_THRESHOLD;
 
-    private static final DateTimeFormatter LENIENT_FORMATTER = new DateTimeFormatterBuilder()
-            .appendPattern("yyyy-MM-dd HH:mm:ss")
-            .toFormatter()
-            .withResolverStyle(ResolverStyle.LENIENT);
+    private final PipelineMetrics metrics;
+
+    public TransactionService(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     /**
      * Parse: accepts a plain list of expenses, returns enriched transactions.
@@ -30,13 +41,61 @@ public class TransactionService {
         List<Transaction> transactions = new ArrayList<>();
         for (Expense expense : expenses) {
             double amount = expense.getAmount();
-            double ceiling = computeCeiling(amount);
+            double ceiling = SavingsPipeline.computeCeiling(amount);
             double remanent = ceiling - amount;
             transactions.add(new Transaction(expense.getDate(), amount, ceiling, remanent));
         }
         return transactions;
     }
 
+    /**
+     * Streaming parse: reads expenses one at a time (NDJSON, or the elements of a
+     * JSON array) and writes each enriched transaction as one line, so memory use
+     * does not grow with the input size. Returns the number of transactions written.
+     */
+    public long parseStream(JsonParser parser, JsonGenerator generator) throws IOException {
+        long count = 0;
+        JsonToken token = parser.nextToken();
+        boolean inArray = token == JsonToken.START_ARRAY;
+        if (inArray) {
+            token = parser.nextToken();
+        }
+
+        while (token != null && token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected an expense object, got " + token);
+            }
+            String date = null;
+            double amount = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("date".equals(field)) {
+                    date = parser.getValueAsString();
+                } else if ("amount".equals(field)) {
+                    amount = parser.getValueAsDouble();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            double ceiling = SavingsPipeline.computeCeiling(amount);
+            double remanent = ceiling - amount;
+            generator.writeStartObject();
+            generator.writeStringField("date", date);
+            generator.writeNumberField("amount", amount);
+            generator.writeNumberField("ceiling", ceiling);
+            generator.writeNumberField("remanent", remanent);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            count++;
+
+            token = parser.nextToken();
+        }
+        generator.flush();
+        return count;
+    }
+
     /**
      * Parse from wrapped request.
      */
@@ -50,7 +109,7 @@ public class TransactionService {
     public ValidatorResponse validate(ValidatorRequest request) {
         List<Transaction> valid = new ArrayList<>();
         List<InvalidTransaction> invalid = new ArrayList<>();
-        Set<String> seenDates = new HashSet<>();
+        LongHashSet seenDates = new LongHashSet(request.getTransactions().size());
 
         for (Transaction txn : request.getTransactions()) {
             String errorMsg = null;
@@ -61,19 +120,17 @@ public class TransactionService {
                 errorMsg = "Amount exceeds maximum allowed value of 500000";
             }
 
+            long epochSecond = TimestampParser.ERR_MISSING;
             if (errorMsg == null) {
-                if (txn.getDate() == null || txn.getDate().isEmpty()) {
+                epochSecond = TimestampParser.parseStrict(txn.getDate());
+                if (epochSecond == TimestampParser.ERR_MISSING) {
                     errorMsg = "Date is required";
-                } else {
-                    try {
-                        LocalDateTime.parse(txn.getDate(), STRICT_FORMATTER);
-                    } catch (Exception e) {
-                        errorMsg = "Invalid date format. Expected: YYYY-MM-DD HH:mm:ss";
-                    }
+                } else if (TimestampParser.isError(epochSecond)) {
+                    errorMsg = "Invalid date format. Expected: YYYY-MM-DD HH:mm:ss";
                 }
             }
 
-            if (errorMsg == null && !seenDates.add(txn.getDate())) {
+            if (errorMsg == null && !seenDates.add(epochSecond)) {
                 errorMsg = "Duplicate transaction date";
             }
 
@@ -97,135 +154,70 @@ public class TransactionService {
      * 6. Exclude transactions with remanent = 0
      */
     public FilterResponse filter(FilterRequest request) {
-        List<Expense> expenses = request.getExpenses();
-        if (expenses == null)
-            expenses = new ArrayList<>();
-
-        List<QPeriod> qPeriods = request.getQ() != null ? request.getQ() : new ArrayList<>();
-        List<PPeriod> pPeriods = request.getP() != null ? request.getP() : new ArrayList<>();
-        List<KPeriod> kPeriods = request.getK() != null ? request.getK() : new ArrayList<>();
-
-        // Pre-parse period date ranges
-        List<LocalDateTime[]> qRanges = new ArrayList<>();
-        for (QPeriod q : qPeriods) {
-            qRanges.add(new LocalDateTime[] { parseLenient(q.getStart()), parseLenient(q.getEnd()) });
-        }
-
-        List<LocalDateTime[]> pRanges = new ArrayList<>();
-        for (PPeriod p : pPeriods) {
-            pRanges.add(new LocalDateTime[] { parseLenient(p.getStart()), parseLenient(p.getEnd()) });
-        }
-
-        List<LocalDateTime[]> kRanges = new ArrayList<>();
-        for (KPeriod k : kPeriods) {
-            kRanges.add(new LocalDateTime[] { parseLenient(k.getStart()), parseLenient(k.getEnd()) });
-        }
-
-        List<ValidTransaction> valid = new ArrayList<>();
-        List<InvalidTransaction> invalid = new ArrayList<>();
-        Set<String> seenDates = new HashSet<>();
+        return filter(request, RuleSet.compile(request.getQ(), request.getP(), request.getK()));
+    }
 
-        for (Expense expense : expenses) {
-            double amount = expense.getAmount();
-            String date = expense.getDate();
+    /**
+     * Filter against an already compiled (e.g. registered) rule set.
+     */
+    public FilterResponse filter(FilterRequest request, RuleSet ruleSet) {
+        return filter(request, ruleSet, StageListener.NONE);
+    }
 
-            // Step 1: Validate
-            if (amount < 0) {
-                invalid.add(new InvalidTransaction(date, amount, 0, 0, "Negative amounts are not allowed"));
-                continue;
-            }
+    /**
+     * As {@link #filter(FilterRequest, RuleSet)}, also telling {@code progress} as
+     * each pipeline stage completes.
+     */
+    public FilterResponse filter(FilterRequest request, RuleSet ruleSet, StageListener progress) {
+        TransactionBatch batch = request.getTransactionBatch();
+        KPeriodIndex kIndex = ruleSet.kIndex();
 
-            if (amount >= 500000) {
-                invalid.add(
-                        new InvalidTransaction(date, amount, 0, 0, "Amount exceeds maximum allowed value of 500000"));
-                continue;
-            }
+        StageListener stages = metrics.stages(PipelineMetrics.FILTER).andThen(progress);
 
-            if (date == null || date.isEmpty()) {
-                invalid.add(new InvalidTransaction(date, amount, 0, 0, "Date is required"));
-                continue;
-            }
+        // Steps 1-4: validate, dedup, enrich and apply q/p rules over the columnar batch
+        ProcessedBatch processed = SavingsPipeline.process(batch, ruleSet, parallelThreshold, stages);
+        metrics.recordBatch(PipelineMetrics.FILTER, processed);
+        long start = System.nanoTime();
 
-            LocalDateTime expDate;
-            try {
-                expDate = LocalDateTime.parse(date, STRICT_FORMATTER);
-            } catch (Exception e) {
-                invalid.add(new InvalidTransaction(date, amount, 0, 0, "Invalid date format"));
-                continue;
-            }
+        List<ValidTransaction> valid = new ArrayList<>();
+        List<InvalidTransaction> invalid = new ArrayList<>();
 
-            if (!seenDates.add(date)) {
-                invalid.add(new InvalidTransaction(date, amount, 0, 0, "Duplicate transaction"));
+        for (int row = 0; row < processed.size(); row++) {
+            byte status = processed.status(row);
+            if (status != ProcessedBatch.VALID) {
+                invalid.add(new InvalidTransaction(batch.date(row), batch.amount(row), 0, 0, filterMessage(status)));
                 continue;
             }
 
-            // Step 2: Compute ceiling and remanent
-            double ceiling = computeCeiling(amount);
-            double remanent = ceiling - amount;
-
-            // Step 3: Apply q-period rules (latest start wins)
-            int bestQIndex = -1;
-            LocalDateTime bestQStart = null;
-            for (int j = 0; j < qPeriods.size(); j++) {
-                LocalDateTime qStart = qRanges.get(j)[0];
-                LocalDateTime qEnd = qRanges.get(j)[1];
-                if (!expDate.isBefore(qStart) && !expDate.isAfter(qEnd)) {
-                    if (bestQIndex == -1 || qStart.isAfter(bestQStart)) {
-                        bestQIndex = j;
-                        bestQStart = qStart;
-                    }
-                }
-            }
-            if (bestQIndex != -1) {
-                remanent = qPeriods.get(bestQIndex).getFixed();
-            }
-
-            // Step 4: Apply p-period rules (all extras stack)
-            for (int j = 0; j < pPeriods.size(); j++) {
-                LocalDateTime pStart = pRanges.get(j)[0];
-                LocalDateTime pEnd = pRanges.get(j)[1];
-                if (!expDate.isBefore(pStart) && !expDate.isAfter(pEnd)) {
-                    remanent += pPeriods.get(j).getExtra();
-                }
-            }
-
             // Step 5: Skip transactions with zero remanent (e.g., q fixed=0 with no p)
+            double remanent = processed.remanent(row);
             if (remanent == 0) {
                 continue;
             }
 
             // Step 6: Check k-period membership
-            boolean inKPeriod = false;
-            for (int j = 0; j < kPeriods.size(); j++) {
-                LocalDateTime kStart = kRanges.get(j)[0];
-                LocalDateTime kEnd = kRanges.get(j)[1];
-                if (!expDate.isBefore(kStart) && !expDate.isAfter(kEnd)) {
-                    inKPeriod = true;
-                    break;
-                }
-            }
+            boolean inKPeriod = kIndex.contains(batch.epochSecond(row));
 
-            valid.add(new ValidTransaction(date, amount, ceiling, remanent, inKPeriod));
+            valid.add(new ValidTransaction(batch.date(row), batch.amount(row), processed.ceiling(row), remanent,
+                    inKPeriod));
         }
 
+        stages.stage(PipelineStage.K, System.nanoTime() - start);
         return new FilterResponse(valid, invalid);
     }
 
-    /**
-     * Round up to next multiple of 100. If already a multiple, return as-is.
-     */
-    private double computeCeiling(double amount) {
-        double remainder = amount % 100;
-        if (remainder == 0)
-            return amount;
-        return amount + (100 - remainder);
-    }
-
-    private LocalDateTime parseLenient(String dateStr) {
-        try {
-            return LocalDateTime.parse(dateStr, LENIENT_FORMATTER);
-        } catch (Exception e) {
-            return LocalDateTime.parse(dateStr, STRICT_FORMATTER);
+    static String filterMessage(byte status) {
+        switch (status) {
+            case ProcessedBatch.NEGATIVE_AMOUNT:
+                return "Negative amounts are not allowed";
+            case ProcessedBatch.AMOUNT_TOO_LARGE:
+                return "Amount exceeds maximum allowed value of 500000";
+            case ProcessedBatch.DATE_MISSING:
+                return "Date is required";
+            case ProcessedBatch.DATE_INVALID:
+                return "Invalid date format";
+            default:
+                return "Duplicate transaction";
         }
     }
 }
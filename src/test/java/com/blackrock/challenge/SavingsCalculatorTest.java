@@ -16,29 +16,79 @@ package com.blackrock.challenge;
  * ============================================================
  */
 
+import com.blackrock.challenge.controller.BinaryFormats;
+import com.blackrock.challenge.controller.ConcurrencyLimitInterceptor;
+import com.blackrock.challenge.controller.GlobalExceptionHandler;
 import com.blackrock.challenge.dto.*;
+import com.blackrock.challenge.engine.*;
 import com.blackrock.challenge.model.*;
 import com.blackrock.challenge.service.*;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 
 class SavingsCalculatorTest {
 
+    private PipelineMetrics metrics;
     private TransactionService transactionService;
     private TaxService taxService;
     private ReturnsService returnsService;
 
     @BeforeEach
     void setUp() {
-        transactionService = new TransactionService();
-        taxService = new TaxService();
-        returnsService = new ReturnsService();
+        metrics = new PipelineMetrics(new SimpleMeterRegistry());
+        transactionService = new TransactionService(metrics);
+        taxService = new TaxService(new TaxProperties());
+        returnsService = new ReturnsService(taxService, metrics, SavingsPipeline.DEFAULT_PARALLEL_THRESHOLD, 0.08, 0.16,
+                0.015, 1_000_000, 100_000);
     }
 
     // ========== PARSE TESTS ==========
@@ -79,6 +129,23 @@ class SavingsCalculatorTest {
         assertEquals(99, result.get(0).getRemanent());
     }
 
+    @Test
+    @DisplayName("Parse: NDJSON stream in, one enriched transaction per line out")
+    void testParseStream() throws Exception {
+        JsonFactory factory = new JsonFactory();
+        StringWriter out = new StringWriter();
+        String in = "{\"date\": \"2023-10-12 20:15:30\", \"amount\": 250}\n"
+                + "{\"amount\": 375, \"note\": {\"x\": 1}, \"date\": \"2023-02-28 15:49:20\"}\n";
+        try (JsonParser parser = factory.createParser(in);
+                JsonGenerator generator = factory.createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            assertEquals(2, transactionService.parseStream(parser, generator));
+        }
+        assertEquals("{\"date\":\"2023-10-12 20:15:30\",\"amount\":250.0,\"ceiling\":300.0,\"remanent\":50.0}\n"
+                + "{\"date\":\"2023-02-28 15:49:20\",\"amount\":375.0,\"ceiling\":400.0,\"remanent\":25.0}\n",
+                out.toString());
+    }
+
     // ========== VALIDATOR TESTS ==========
 
     @Test
@@ -116,6 +183,33 @@ class SavingsCalculatorTest {
         assertEquals("Duplicate transaction date", resp.getInvalid().get(0).getMessage());
     }
 
+    @Test
+    @DisplayName("Validator: primitive dedup set keys on the epoch second and grows past its sizing")
+    void testLongHashSet() {
+        LongHashSet set = new LongHashSet(2);
+        for (long key = -1000; key < 1000; key++) {
+            assertTrue(set.add(key * 86_400));
+        }
+        assertFalse(set.add(0));
+        assertFalse(set.add(-86_400_000));
+        assertTrue(set.contains(999 * 86_400L));
+        assertFalse(set.contains(1));
+        assertEquals(2000, set.size());
+
+        // Sizes whose table would not fit an int are rejected up front, not overflowed
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(LongHashSet.MAX_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(Integer.MAX_VALUE));
+
+        // Same instant written two ways: 24:00:00 rolls over to the next day
+        ValidatorRequest req = new ValidatorRequest();
+        req.setTransactions(List.of(
+                new Transaction("2023-10-01 24:00:00", 100, 100, 0),
+                new Transaction("2023-10-02 00:00:00", 200, 200, 0)));
+        ValidatorResponse resp = transactionService.validate(req);
+        assertEquals(1, resp.getValid().size());
+        assertEquals("Duplicate transaction date", resp.getInvalid().get(0).getMessage());
+    }
+
     @Test
     @DisplayName("Validator: amount >= 500000 invalid")
     void testInvalidAmount() {
@@ -127,6 +221,47 @@ class SavingsCalculatorTest {
         assertEquals(1, resp.getInvalid().size());
     }
 
+    // ========== TIMESTAMP PARSER TESTS ==========
+
+    @Test
+    @DisplayName("Timestamps: strict parse matches java.time, errors are codes not exceptions")
+    void testTimestampParser() {
+        DateTimeFormatter formatter =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        for (String date : List.of("2023-10-12 20:15:30", "1969-12-31 23:59:59", "2024-02-29 00:00:00",
+                "2023-11-31 10:00:00", "2023-02-30 10:00:00", "2023-11-10 24:00:00")) {
+            assertEquals(LocalDateTime.parse(date, formatter).toEpochSecond(ZoneOffset.UTC),
+                    TimestampParser.parseStrict(date), date);
+        }
+        assertEquals(TimestampParser.ERR_MISSING, TimestampParser.parseStrict(""));
+        assertEquals(TimestampParser.ERR_MISSING, TimestampParser.parseStrict(null));
+        assertEquals(TimestampParser.ERR_FORMAT, TimestampParser.parseStrict("2023-10-12T20:15:30"));
+        assertEquals(TimestampParser.ERR_FORMAT, TimestampParser.parseStrict("2023-1-12 20:15:30"));
+        assertEquals(TimestampParser.ERR_RANGE, TimestampParser.parseStrict("2023-13-12 20:15:30"));
+        assertEquals(TimestampParser.ERR_RANGE, TimestampParser.parseStrict("2023-10-12 24:00:01"));
+        assertEquals(TimestampParser.ERR_RANGE, TimestampParser.parseStrict("0000-10-12 20:15:30"));
+        assertEquals(TimestampParser.parseStrict("2023-12-01 23:59:59"),
+                TimestampParser.parseLenient("2023-11-31 23:59:59"));
+    }
+
+    @Test
+    @DisplayName("Timestamps: years past 9999 parse like java.time, signed with '+'")
+    void testTimestampParserExtendedYears() {
+        DateTimeFormatter formatter =
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        for (String date : List.of("+12023-01-01 10:00:00", "+10000-02-29 00:00:00", "+999999999-12-31 23:59:59")) {
+            long expected = LocalDateTime.parse(date, formatter).toEpochSecond(ZoneOffset.UTC);
+            assertEquals(expected, TimestampParser.parseStrict(date), date);
+            assertEquals(expected, TimestampParser.parseStrict(date.toCharArray(), 0, date.length()), date);
+        }
+        // java.time rejects these too: unsigned past 4 digits, signed within 4, beyond its year range
+        assertEquals(TimestampParser.ERR_FORMAT, TimestampParser.parseStrict("12023-01-01 10:00:00"));
+        assertEquals(TimestampParser.ERR_FORMAT, TimestampParser.parseStrict("+2023-01-01 10:00:00"));
+        assertEquals(TimestampParser.ERR_FORMAT, TimestampParser.parseStrict("+12023-01-01T10:00:00"));
+        assertEquals(TimestampParser.ERR_RANGE, TimestampParser.parseStrict("+1000000000-01-01 00:00:00"));
+        assertEquals(TimestampParser.ERR_RANGE, TimestampParser.parseStrict("+12023-13-01 00:00:00"));
+    }
+
     // ========== FILTER TESTS ==========
 
     @Test
@@ -188,6 +323,391 @@ class SavingsCalculatorTest {
         assertEquals(2, resp.getInvalid().size());
     }
 
+    @Test
+    @DisplayName("Filter: stage timers, invalid-row counters and batch size are recorded")
+    void testFilterMetrics() {
+        SimpleMeterRegistry registry =
+                new SimpleMeterRegistry();
+        transactionService = new TransactionService(new PipelineMetrics(registry));
+        FilterRequest req = new FilterRequest();
+        req.setExpenses(List.of(
+                new Expense("2023-10-12 20:15:30", 250),
+                new Expense("2023-10-12 20:15:30", 250),
+                new Expense("2023-12-17 08:09:45", -480)));
+        req.setQ(Collections.emptyList());
+        req.setP(Collections.emptyList());
+        req.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+        transactionService.filter(req);
+
+        for (String stage : List.of("validate", "dedup", "q", "p", "k")) {
+            assertEquals(1, registry.get("challenge.pipeline.stage")
+                    .tags("operation", "filter", "stage", stage).timer().count(), stage);
+        }
+        assertEquals(1.0, registry.get("challenge.pipeline.invalid.rows")
+                .tags("operation", "filter", "reason", "duplicate").counter().count());
+        assertEquals(1.0, registry.get("challenge.pipeline.invalid.rows")
+                .tags("operation", "filter", "reason", "negative_amount").counter().count());
+        assertEquals(3.0, registry.get("challenge.pipeline.batch.last").tags("operation", "filter").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Filter: Smile and CBOR bodies bind and answer like JSON")
+    void testFilterBinaryFormats() throws Exception {
+        Jackson2ObjectMapperBuilder builder =
+                Jackson2ObjectMapperBuilder.json();
+        BinaryFormats formats = new BinaryFormats();
+        ObjectMapper json = builder.build();
+        String body = "{\"expenses\": [{\"date\": \"2023-02-28 15:49:20\", \"amount\": 375},"
+                + " {\"date\": \"2023-10-12 20:15:30\", \"amount\": 250},"
+                + " {\"date\": \"2023-10-12 20:15:30\", \"amount\": 250}],"
+                + " \"q\": [], \"p\": [{\"start\": \"2023-10-01 00:00:00\", \"end\": \"2023-12-31 23:59:59\", \"extra\": 30}],"
+                + " \"k\": [{\"start\": \"2023-01-01 00:00:00\", \"end\": \"2023-12-31 23:59:59\"}]}";
+        String expected = json.writeValueAsString(transactionService.filter(json.readValue(body, FilterRequest.class)));
+
+        for (ObjectMapper binary : List.of(
+                formats.smileHttpMessageConverter(builder).getObjectMapper(),
+                formats.cborHttpMessageConverter(builder).getObjectMapper())) {
+            byte[] encoded = binary.writeValueAsBytes(json.readTree(body));
+            FilterResponse resp = transactionService.filter(binary.readValue(encoded, FilterRequest.class));
+            byte[] answer = binary.writeValueAsBytes(resp);
+            assertEquals(expected, json.writeValueAsString(binary.readTree(answer)));
+        }
+    }
+
+    @Test
+    @DisplayName("Filter: CSV read in parallel line-aligned chunks binds like JSON; local files stay in the import dir")
+    void testCsvImport(@TempDir Path dir) throws Exception {
+        // Header with reordered and extra columns, quotes, CRLF, blank lines, BOM
+        StringBuilder csv = new StringBuilder("\uFEFFid,amount,\"Date\"\r\n");
+        TransactionBatch expected = new TransactionBatch();
+        for (int i = 0; i < 500; i++) {
+            String date = String.format("2023-%02d-%02d %02d:%02d:%02d", 1 + i % 12, 1 + i % 28, i % 24, i % 60, i % 7);
+            String amount = i % 50 == 0 ? "1.5e2" : i % 3 + "" + i + "." + i % 10;
+            csv.append(i).append(',').append(amount).append(i % 2 == 0 ? ",\"" + date + "\"" : ", " + date)
+                    .append(i % 4 == 0 ? "\r\n" : "\n");
+            expected.add(date, Double.parseDouble(amount));
+            if (i % 100 == 0) {
+                csv.append("\n").append(i).append(",-7.25,\n");
+                expected.add(null, -7.25);
+            }
+        }
+        Path file = dir.resolve("export.csv");
+        Files.writeString(file, csv);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int chunkBytes : new int[] { 97, 1024, CsvExpenseReader.CHUNK_BYTES }) {
+                TransactionBatch batch = CsvExpenseReader.read(file, chunkBytes, pool);
+                assertEquals(expected.size(), batch.size());
+                for (int row = 0; row < batch.size(); row++) {
+                    assertEquals(expected.epochSecond(row), batch.epochSecond(row));
+                    assertEquals(expected.amount(row), batch.amount(row));
+                    assertEquals(expected.date(row), batch.date(row));
+                }
+            }
+            Files.writeString(file, "2023-01-01 10:00:00,12\n2023-01-01 10:00:01,1O0\n");
+            IllegalArgumentException bad = assertThrows(IllegalArgumentException.class,
+                    () -> CsvExpenseReader.read(file, 8, pool));
+            assertTrue(bad.getMessage().contains("'1O0' in the line at byte 23"), bad.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+
+        RuleSetRegistry registry = new RuleSetRegistry(10000);
+        RuleSetRequest rules = new RuleSetRequest();
+        rules.setP(List.of(new PPeriod("2023-10-01 00:00:00", "2023-12-31 23:59:59", 30)));
+        rules.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+        FilterRequest params = new FilterRequest();
+        params.setRuleSetId(registry.register(rules));
+        Files.writeString(file,
+                "date,amount\n2023-02-28 15:49:20,375\n2023-10-12 20:15:30,250\n2023-10-12 20:15:30,250\n");
+
+        CsvImportService imports = new CsvImportService(transactionService, returnsService, registry, metrics,
+                dir.toString(), 64 << 20);
+        FilterResponse resp = (FilterResponse) imports.importFile("export.csv", params, "filter");
+        assertEquals(2, resp.getValid().size());
+        assertEquals(80.0, resp.getValid().get(1).getRemanent());
+        assertEquals("Duplicate transaction", resp.getInvalid().get(0).getMessage());
+        ReturnsResponse uploaded = (ReturnsResponse) imports.importUpload(
+                new ByteArrayInputStream(Files.readAllBytes(file)), params, "index");
+        assertEquals(105.0, uploaded.getSavingsByDates().get(0).getAmount());
+
+        assertThrows(IllegalArgumentException.class, () -> imports.importFile("../export.csv", params, "filter"));
+        assertThrows(NoSuchElementException.class, () -> imports.importFile("none.csv", params, "nps"));
+        CsvImportService small = new CsvImportService(transactionService, returnsService, registry, metrics,
+                dir.toString(), 16);
+        assertThrows(IllegalArgumentException.class, () -> small.importUpload(
+                new ByteArrayInputStream(Files.readAllBytes(file)), params, "nps"));
+    }
+
+    // ========== RULE ENGINE TESTS ==========
+
+    @Test
+    @DisplayName("Rules: latest q start wins, ties go to the first period")
+    void testRuleEngineQTieBreak() {
+        PeriodRuleEngine rules = PeriodRuleEngine.compile(
+                new long[] { 0, 10, 10 }, new long[] { 100, 50, 60 }, new double[] { 1, 2, 3 },
+                new long[0], new long[0], new double[0]);
+        assertEquals(1.0, rules.apply(5, 99));
+        assertEquals(2.0, rules.apply(10, 99));
+        assertEquals(3.0, rules.apply(55, 99));
+        assertEquals(1.0, rules.apply(61, 99));
+        assertEquals(99.0, rules.apply(101, 99));
+    }
+
+    @Test
+    @DisplayName("Rules: sweep-line matches nested loops on random periods")
+    void testRuleEngineMatchesNestedLoops() {
+        Random random = new Random(42);
+        int q = 200, p = 200;
+        long[] qs = new long[q], qe = new long[q], ps = new long[p], pe = new long[p];
+        double[] qf = new double[q], px = new double[p];
+        for (int j = 0; j < q; j++) {
+            qs[j] = random.nextInt(10_000);
+            qe[j] = qs[j] + random.nextInt(500) - 20;
+            qf[j] = random.nextInt(100);
+        }
+        for (int j = 0; j < p; j++) {
+            ps[j] = random.nextInt(10_000);
+            pe[j] = ps[j] + random.nextInt(500) - 20;
+            px[j] = random.nextInt(100);
+        }
+        PeriodRuleEngine rules = PeriodRuleEngine.compile(qs, qe, qf, ps, pe, px);
+
+        for (long t = -5; t < 10_600; t++) {
+            double expected = 42;
+            int best = -1;
+            for (int j = 0; j < q; j++) {
+                if (t >= qs[j] && t <= qe[j] && (best == -1 || qs[j] > qs[best])) {
+                    best = j;
+                }
+            }
+            if (best != -1) {
+                expected = qf[best];
+            }
+            for (int j = 0; j < p; j++) {
+                if (t >= ps[j] && t <= pe[j]) {
+                    expected += px[j];
+                }
+            }
+            assertEquals(expected, rules.apply(t, 42), "t=" + t);
+        }
+    }
+
+    @Test
+    @DisplayName("Rules: fractional p extras add in input order, bit for bit like the nested loop")
+    void testRuleEngineFractionalExtras() {
+        // Summed first, 0.2 + 0.3 would give 0.1 + 0.5 = 0.6; in order it is 0.6000000000000001
+        PeriodRuleEngine pair = PeriodRuleEngine.compile(new long[0], new long[0], new double[0],
+                new long[] { 0, 0 }, new long[] { 10, 10 }, new double[] { 0.2, 0.3 });
+        assertEquals(0.1 + 0.2 + 0.3, pair.apply(5, 0.1));
+        assertNotEquals(0.1 + (0.2 + 0.3), pair.apply(5, 0.1));
+
+        Random random = new Random(7);
+        int q = 50, p = 300;
+        long[] qs = new long[q], qe = new long[q], ps = new long[p], pe = new long[p];
+        double[] qf = new double[q], px = new double[p];
+        for (int j = 0; j < q; j++) {
+            qs[j] = random.nextInt(5_000);
+            qe[j] = qs[j] + random.nextInt(300) - 10;
+            qf[j] = random.nextInt(10_000) / 100.0;
+        }
+        for (int j = 0; j < p; j++) {
+            ps[j] = random.nextInt(5_000);
+            pe[j] = ps[j] + random.nextInt(800) - 10;
+            px[j] = (random.nextInt(20_000) - 5_000) / 100.0 + random.nextDouble() / 1000;
+        }
+        PeriodRuleEngine rules = PeriodRuleEngine.compile(qs, qe, qf, ps, pe, px);
+
+        for (long t = -5; t < 5_900; t++) {
+            double remanent = (t % 97) * 0.37;
+            int best = -1;
+            for (int j = 0; j < q; j++) {
+                if (t >= qs[j] && t <= qe[j] && (best == -1 || qs[j] > qs[best])) {
+                    best = j;
+                }
+            }
+            if (best != -1) {
+                remanent = qf[best];
+            }
+            for (int j = 0; j < p; j++) {
+                if (t >= ps[j] && t <= pe[j]) {
+                    remanent += px[j];
+                }
+            }
+            double actual = rules.apply(t, (t % 97) * 0.37);
+            assertEquals(Double.doubleToRawLongBits(remanent), Double.doubleToRawLongBits(actual), "t=" + t);
+        }
+    }
+
+    @Test
+    @DisplayName("Rules: thousands of nested and overlapping p periods compile compactly and add in input order")
+    void testRuleEngineNestedExtras() {
+        // Half the periods nest around one instant, half form an overlapping chain;
+        // the input order is shuffled so it differs from the start order
+        Random random = new Random(11);
+        int p = 6_000;
+        long[] ps = new long[p], pe = new long[p];
+        double[] px = new double[p];
+        for (int j = 0; j < p; j++) {
+            int depth = j / 2;
+            if (j % 2 == 0) {
+                ps[j] = depth;
+                pe[j] = 2L * p - depth;
+            } else {
+                ps[j] = depth * 3L;
+                pe[j] = depth * 3L + 400;
+            }
+            px[j] = random.nextInt(10_000) / 100.0 + random.nextDouble() / 1000;
+        }
+        for (int j = p - 1; j > 0; j--) {
+            int k = random.nextInt(j + 1);
+            long s = ps[j]; ps[j] = ps[k]; ps[k] = s;
+            long e = pe[j]; pe[j] = pe[k]; pe[k] = e;
+            double x = px[j]; px[j] = px[k]; px[k] = x;
+        }
+        PeriodRuleEngine rules = PeriodRuleEngine.compile(new long[0], new long[0], new double[0], ps, pe, px);
+
+        for (long t = -3; t < 9_400; t += 7) {
+            double remanent = 0.1;
+            for (int j = 0; j < p; j++) {
+                if (t >= ps[j] && t <= pe[j]) {
+                    remanent += px[j];
+                }
+            }
+            double actual = rules.apply(t, 0.1);
+            assertEquals(Double.doubleToRawLongBits(remanent), Double.doubleToRawLongBits(actual), "t=" + t);
+        }
+    }
+
+    @Test
+    @DisplayName("K index: merged windows answer membership, prefix sums answer window totals")
+    void testKPeriodIndexAndPrefixSums() {
+        KPeriodIndex kIndex = KPeriodIndex.compile(
+                new long[] { 10, 15, 31, 100 }, new long[] { 20, 30, 40, 90 });
+        assertTrue(kIndex.contains(10));
+        assertTrue(kIndex.contains(35));
+        assertFalse(kIndex.contains(41));
+        assertFalse(kIndex.contains(95));
+
+        long[] epochs = { 35, 12, 40, 12, 5, 41 };
+        double[] remanents = { 1, 2, 4, 8, 16, 32 };
+        RemanentPrefixSums prefixSums = RemanentPrefixSums.build(epochs, remanents, epochs.length);
+        assertArrayEquals(new double[] { 10, 0, 5, 0 }, kIndex.sums(prefixSums));
+        assertEquals(63.0, prefixSums.sum(0, 100));
+    }
+
+    @Test
+    @DisplayName("Rule registry: registered rule set gives the same result as inline periods")
+    void testRegisteredRuleSet() {
+        RuleSetRegistry registry = new RuleSetRegistry(10000);
+        RuleSetRequest rules = new RuleSetRequest();
+        rules.setQ(List.of(new QPeriod("2023-07-01 00:00:00", "2023-07-31 23:59:59", 0)));
+        rules.setP(List.of(new PPeriod("2023-10-01 00:00:00", "2023-12-31 23:59:59", 30)));
+        rules.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-06-30 23:59:59")));
+        String id = registry.register(rules);
+
+        FilterRequest req = new FilterRequest();
+        req.setExpenses(List.of(
+                new Expense("2023-02-28 15:49:20", 375),
+                new Expense("2023-07-15 10:30:00", 620),
+                new Expense("2023-10-12 20:15:30", 250)));
+        req.setRuleSetId(id);
+        FilterResponse resp = transactionService.filter(req, registry.resolve(req));
+
+        assertEquals(2, resp.getValid().size());
+        assertTrue(resp.getValid().get(0).isInKPeriod());
+        assertEquals(80.0, resp.getValid().get(1).getRemanent());
+        assertFalse(resp.getValid().get(1).isInKPeriod());
+
+        req.setK(Collections.emptyList());
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve(req));
+        registry.remove(id);
+        req.setK(null);
+        assertThrows(NoSuchElementException.class, () -> registry.resolve(req));
+
+        // A full registry answers 503; a failed compile or a removal frees the slot
+        RuleSetRegistry single = new RuleSetRegistry(1);
+        RuleSetRequest bad = new RuleSetRequest();
+        bad.setQ(List.of(new QPeriod("not a date", "2023-07-31 23:59:59", 0)));
+        assertThrows(DateTimeParseException.class, () -> single.register(bad));
+        String only = single.register(rules);
+        RetryLaterException full = assertThrows(RetryLaterException.class, () -> single.register(rules));
+        assertTrue(full.getRetryAfterSeconds() > 0);
+        single.remove(only);
+        single.register(rules);
+
+        RuleSetRegistry capped = new RuleSetRegistry(8);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            long registered = pool.submit(() -> IntStream.range(0, 64).parallel().filter(i -> {
+                try {
+                    capped.register(rules);
+                    return true;
+                } catch (RetryLaterException e) {
+                    return false;
+                }
+            }).count()).join();
+            assertEquals(8, registered);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Pipeline: parallel run matches the inline run, first duplicate wins")
+    void testParallelPipelineMatchesInline() {
+        Random random = new Random(7);
+        TransactionBatch batch = new TransactionBatch();
+        for (int i = 0; i < 20_000; i++) {
+            String date = String.format("2023-%02d-%02d %02d:00:00",
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24));
+            double amount = random.nextInt(20) == 0 ? -5 : random.nextInt(2000);
+            batch.add(random.nextInt(50) == 0 ? "not a date" : date, amount);
+        }
+        RuleSet ruleSet = RuleSet.compile(
+                List.of(new QPeriod("2023-03-01 00:00:00", "2023-05-31 23:59:59", 7)),
+                List.of(new PPeriod("2023-04-01 00:00:00", "2023-09-30 23:59:59", 25)),
+                List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+
+        ProcessedBatch inline = SavingsPipeline.process(batch, ruleSet, Integer.MAX_VALUE);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ProcessedBatch parallel = SavingsPipeline.process(batch, ruleSet, 0, pool);
+            assertTrue(inline.validCount() > 0);
+            assertTrue(IntStream.range(0, batch.size())
+                    .anyMatch(row -> inline.status(row) == ProcessedBatch.DUPLICATE));
+            assertEquals(inline.validCount(), parallel.validCount());
+            for (int row = 0; row < batch.size(); row++) {
+                assertEquals(inline.status(row), parallel.status(row), "row " + row);
+                assertEquals(inline.remanent(row), parallel.remanent(row), "row " + row);
+            }
+            assertEquals(inline.totalCeiling(), parallel.totalCeiling());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Filter: JSON binds straight into a columnar batch")
+    void testFilterRequestBindsBatch() throws Exception {
+        String json = "{\"wage\": 50000, \"transactions\": ["
+                + "{\"date\": \"2023-10-12 20:15:30\", \"amount\": 250, \"extra\": [1, 2]},"
+                + "{\"amount\": \"375.5\", \"date\": null},"
+                + "{\"date\": 20231012, \"amount\": 10}]}";
+        FilterRequest req = new ObjectMapper().readValue(json, FilterRequest.class);
+        TransactionBatch batch = req.getTransactionBatch();
+
+        assertEquals(3, batch.size());
+        assertEquals("2023-10-12 20:15:30", batch.date(0));
+        assertEquals(TimestampParser.parseStrict("2023-10-12 20:15:30"), batch.epochSecond(0));
+        assertEquals(375.5, batch.amount(1));
+        assertNull(batch.date(1));
+        assertEquals(TimestampParser.ERR_MISSING, batch.epochSecond(1));
+        assertEquals("20231012", batch.date(2));
+        assertEquals(TimestampParser.ERR_FORMAT, batch.epochSecond(2));
+    }
+
     // ========== RETURNS TESTS ==========
 
     @Test
@@ -221,6 +741,34 @@ class SavingsCalculatorTest {
         assertEquals(44.94, resp.getSavingsByDates().get(1).getProfit());
     }
 
+    @Test
+    @DisplayName("Returns: projection curve runs from today to retirement and ends on the reported returns")
+    void testReturnsProjection() {
+        FilterRequest req = new FilterRequest();
+        req.setExpenses(List.of(new Expense("2023-02-28 15:49:20", 375), new Expense("2023-10-12 20:15:30", 250)));
+        req.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+        req.setAge(29);
+        req.setInflation(5.5);
+        assertNull(returnsService.calculateNPS(req).getSavingsByDates().get(0).getProjection());
+
+        req.setProjection(true);
+        KPeriodSavings savings = returnsService.calculateNPS(req).getSavingsByDates().get(0);
+        List<ProjectionPoint> curve = savings.getProjection();
+        assertEquals(32, curve.size());
+        assertEquals(29, curve.get(0).getAge());
+        assertEquals(75.0, curve.get(0).getNominal());
+        assertEquals(75.0, curve.get(0).getReal());
+        assertEquals(60, curve.get(31).getAge());
+        assertEquals(savings.getAmount() + savings.getProfit(), curve.get(31).getReal(), 0.011);
+
+        GrowthFactors growth = GrowthFactors.compute(0.0711, 0.055, 31);
+        for (int y = 0; y <= 31; y++) {
+            assertEquals(Math.pow(1.0711, y), growth.growth(y), 1e-12 * growth.growth(y));
+            assertEquals(Math.pow(1.055, y), growth.deflator(y), 1e-12 * growth.deflator(y));
+        }
+        assertEquals(0, GrowthFactors.compute(0.0711, 0.055, -3).years());
+    }
+
     @Test
     @DisplayName("Index: taxBenefit is always 0")
     void testIndexNoTaxBenefit() {
@@ -240,6 +788,641 @@ class SavingsCalculatorTest {
         assertTrue(resp.getSavingsByDates().get(0).getProfit() > 0);
     }
 
+    @Test
+    @DisplayName("Compare: one pass gives the same NPS and Index results as separate calls")
+    void testCompareMatchesSeparateCalls() {
+        FilterRequest req = new FilterRequest();
+        req.setExpenses(List.of(
+                new Expense("2023-02-28 15:49:20", 375),
+                new Expense("2023-07-01 21:59:00", 620),
+                new Expense("2023-10-12 20:15:30", 250),
+                new Expense("2023-12-17 08:09:45", 480)));
+        req.setP(List.of(new PPeriod("2023-10-01 08:00:00", "2023-12-31 19:59:59", 25)));
+        req.setK(List.of(
+                new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59"),
+                new KPeriod("2023-03-01 00:00:00", "2023-11-31 23:59:59")));
+        req.setAge(29);
+        req.setWage(1200000);
+        req.setInflation(5.5);
+
+        ReturnsComparisonResponse resp = returnsService.compare(req);
+        ReturnsResponse nps = returnsService.calculateNPS(req);
+        ReturnsResponse index = returnsService.calculateIndex(req);
+
+        for (ReturnsResponse[] pair : new ReturnsResponse[][] { { resp.getNps(), nps }, { resp.getIndex(), index } }) {
+            assertEquals(pair[1].getTotalTransactionAmount(), pair[0].getTotalTransactionAmount());
+            assertEquals(pair[1].getTotalCeiling(), pair[0].getTotalCeiling());
+            for (int j = 0; j < 2; j++) {
+                KPeriodSavings expected = pair[1].getSavingsByDates().get(j);
+                KPeriodSavings actual = pair[0].getSavingsByDates().get(j);
+                assertEquals(expected.getAmount(), actual.getAmount());
+                assertEquals(expected.getProfit(), actual.getProfit());
+                assertEquals(expected.getTaxBenefit(), actual.getTaxBenefit());
+            }
+        }
+        assertTrue(resp.getNps().getSavingsByDates().get(0).getTaxBenefit() > 0);
+        assertEquals(0.0, resp.getIndex().getSavingsByDates().get(0).getTaxBenefit());
+    }
+
+    @Test
+    @DisplayName("Simulate: seeded paths reproduce on any pool; without volatility they give the fixed-rate profit")
+    void testSimulateReturns() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool wide = new ForkJoinPool(4);
+        try {
+            ReturnSimulator.Distribution a = ReturnSimulator.simulate(0.1449, 0.16, 0.055, 0.015, 31, 5000, 7, single);
+            ReturnSimulator.Distribution b = ReturnSimulator.simulate(0.1449, 0.16, 0.055, 0.015, 31, 5000, 7, wide);
+            assertArrayEquals(a.nominal(), b.nominal());
+            assertArrayEquals(a.real(), b.real());
+            assertTrue(a.real(5) < a.real(50) && a.real(50) < a.real(95));
+            assertFalse(Arrays.equals(a.real(),
+                    ReturnSimulator.simulate(0.1449, 0.16, 0.055, 0.015, 31, 5000, 8, single).real()));
+        } finally {
+            single.shutdown();
+            wide.shutdown();
+        }
+
+        FilterRequest req = new FilterRequest();
+        req.setExpenses(List.of(
+                new Expense("2023-02-28 15:49:20", 375),
+                new Expense("2023-07-01 21:59:00", 620),
+                new Expense("2023-10-12 20:15:30", 250)));
+        req.setK(List.of(
+                new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59"),
+                new KPeriod("2023-03-01 00:00:00", "2023-11-31 23:59:59")));
+        req.setAge(29);
+        req.setWage(1200000);
+        req.setInflation(5.5);
+        RuleSet ruleSet = RuleSet.compile(req.getQ(), req.getP(), req.getK());
+        ReturnsService steady = new ReturnsService(taxService, metrics, SavingsPipeline.DEFAULT_PARALLEL_THRESHOLD, 0,
+                0.16, 0, 1_000_000, 100_000);
+
+        SimulationResponse sim = steady.simulate(req, ruleSet, "nps", 100, 1, null);
+        ReturnsResponse nps = returnsService.calculateNPS(req);
+        assertEquals(31, sim.getYears());
+        for (int j = 0; j < 2; j++) {
+            SimulationResponse.KPeriodOutcomes outcomes = sim.getSavingsByDates().get(j);
+            assertEquals(nps.getSavingsByDates().get(j).getAmount(), outcomes.getAmount());
+            assertEquals(nps.getSavingsByDates().get(j).getTaxBenefit(), outcomes.getTaxBenefit());
+            assertEquals(5, outcomes.getPercentiles().size());
+            for (SimulationResponse.Outcome outcome : outcomes.getPercentiles()) {
+                assertEquals(nps.getSavingsByDates().get(j).getProfit(), outcome.getProfit(), 0.011);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> returnsService.simulate(req, ruleSet, "compare", 100, 1, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> returnsService.simulate(req, ruleSet, "nps", 0, 1, null));
+    }
+
+    @Test
+    @DisplayName("Sweep: every grid point matches a separate returns call, sequential or parallel")
+    void testSweepMatchesSeparateCalls() {
+        SweepRequest req = new SweepRequest();
+        req.setExpenses(List.of(
+                new Expense("2023-02-28 15:49:20", 375),
+                new Expense("2023-07-01 21:59:00", 620),
+                new Expense("2023-10-12 20:15:30", 250),
+                new Expense("2023-12-17 08:09:45", 480)));
+        req.setP(List.of(new PPeriod("2023-10-01 08:00:00", "2023-12-31 19:59:59", 25)));
+        req.setK(List.of(
+                new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59"),
+                new KPeriod("2023-03-01 00:00:00", "2023-11-31 23:59:59")));
+        req.setAge(29);
+        req.setWage(50000);
+        req.setInflation(5.5);
+        req.setSweep(new SweepRequest.Grid(new SweepRequest.Axis(List.of(29.0, 45.0, 55.0)),
+                new SweepRequest.Axis(4.0, 7.0, 1.5), null, new SweepRequest.Axis(List.of(50000.0, 1200000.0))));
+
+        SweepResponse sweep = returnsService.sweep(req, RuleSet.compile(req.getQ(), req.getP(), req.getK()), "nps");
+        assertEquals(9, sweep.getPoints().size());
+        for (SweepResponse.Point point : sweep.getPoints()) {
+            for (SweepResponse.WageBenefit wage : sweep.getTaxBenefits()) {
+                req.setAge(point.getAge());
+                req.setInflation(point.getInflation());
+                req.setWage(wage.getWage());
+                ReturnsResponse single = returnsService.calculateNPS(req);
+                for (int j = 0; j < 2; j++) {
+                    assertEquals(single.getSavingsByDates().get(j).getProfit(), point.getProfit()[j]);
+                    assertEquals(single.getSavingsByDates().get(j).getTaxBenefit(), wage.getTaxBenefit()[j]);
+                }
+            }
+        }
+        assertTrue(sweep.getTaxBenefits().get(1).getTaxBenefit()[0] > 0);
+
+        // 100 × 100 × 10 points × 2 k periods is above the parallel cut-over
+        int[] years = new int[100];
+        double[] inflations = new double[100];
+        double[] rates = new double[10];
+        for (int i = 0; i < 100; i++) {
+            years[i] = i - 10;
+            inflations[i] = i / 1000.0;
+        }
+        for (int r = 0; r < 10; r++) {
+            rates[r] = 0.02 * r;
+        }
+        double[] kSums = { 145, 75 };
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool wide = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(ParameterSweep.profits(kSums, years, inflations, rates, single),
+                    ParameterSweep.profits(kSums, years, inflations, rates, wide));
+        } finally {
+            single.shutdown();
+            wide.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Ledger: incremental appends match a full recomputation")
+    void testLedgerMatchesFullRecompute() {
+        List<Expense> expenses = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(7);
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        for (int i = 0; i < 300; i++) {
+            // Every 10th expense repeats an earlier timestamp (a duplicate)
+            String date = i % 10 == 9 ? expenses.get(random.nextInt(i)).getDate()
+                    : start.plusSeconds(random.nextInt(365 * 86_400)).toString().replace('T', ' ');
+            expenses.add(new Expense(date.length() == 16 ? date + ":00" : date, random.nextInt(-50, 2000)));
+        }
+        FilterRequest full = new FilterRequest();
+        full.setExpenses(expenses);
+        full.setQ(List.of(new QPeriod("2023-07-01 00:00:00", "2023-07-31 23:59:59", 0)));
+        full.setP(List.of(new PPeriod("2023-10-01 00:00:00", "2023-12-31 23:59:59", 30)));
+        full.setK(List.of(
+                new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59"),
+                new KPeriod("2023-03-01 00:00:00", "2023-08-15 23:59:59"),
+                new KPeriod("2023-06-01 00:00:00", "2023-06-01 00:00:00")));
+        full.setAge(29);
+        full.setWage(1200000);
+        full.setInflation(5.5);
+
+        FilterRequest open = new FilterRequest();
+        open.setQ(full.getQ());
+        open.setP(full.getP());
+        open.setK(full.getK());
+        open.setAge(29);
+        open.setWage(1200000);
+        open.setInflation(5.5);
+        open.setExpenses(expenses.subList(0, 100));
+        LedgerService ledgers = new LedgerService(new RuleSetRegistry(10000), returnsService, 10000, "", 64 << 20, 300);
+        ledgers.open("user-1", open);
+        int invalid = 0;
+        for (int from = 100; from < expenses.size(); from += 7) {
+            List<Expense> chunk = expenses.subList(from, Math.min(from + 7, expenses.size()));
+            invalid += ledgers.append("user-1", TransactionBatch.of(chunk)).getInvalid().size();
+        }
+        assertTrue(invalid > 0);
+
+        ReturnsResponse expected = returnsService.calculateNPS(full);
+        ReturnsResponse actual = ledgers.calculateNPS("user-1");
+        assertEquals(expected.getTotalTransactionAmount(), actual.getTotalTransactionAmount(), 1e-6);
+        assertEquals(expected.getTotalCeiling(), actual.getTotalCeiling(), 1e-6);
+        for (int j = 0; j < 3; j++) {
+            KPeriodSavings e = expected.getSavingsByDates().get(j);
+            KPeriodSavings a = actual.getSavingsByDates().get(j);
+            assertEquals(e.getAmount(), a.getAmount(), 1e-6);
+            assertEquals(e.getProfit(), a.getProfit(), 0.011);
+            assertEquals(e.getTaxBenefit(), a.getTaxBenefit(), 0.011);
+        }
+        assertEquals(transactionService.filter(full).getInvalid().size(),
+                300 - ledgers.summary("user-1").getTransactionCount());
+    }
+
+    @Test
+    @DisplayName("Ledger: fractional k amounts over overlapping periods match an input-order sum to the cent")
+    void testFractionalKAmounts() {
+        List<Expense> expenses = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(11);
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0);
+        for (int i = 0; i < 5000; i++) {
+            String date = start.plusSeconds(random.nextInt(365 * 86_400)).toString().replace('T', ' ');
+            expenses.add(new Expense(date.length() == 16 ? date + ":00" : date, random.nextInt(1, 500_000) / 100.0));
+        }
+        FilterRequest request = new FilterRequest();
+        request.setExpenses(expenses);
+        request.setP(List.of(
+                new PPeriod("2023-02-01 00:00:00", "2023-09-30 23:59:59", 0.35),
+                new PPeriod("2023-06-15 00:00:00", "2023-12-31 23:59:59", 12.07)));
+        request.setK(List.of(
+                new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59"),
+                new KPeriod("2023-03-01 00:00:00", "2023-08-15 23:59:59"),
+                new KPeriod("2023-05-01 00:00:00", "2023-10-31 23:59:59"),
+                new KPeriod("2023-07-01 00:00:00", "2023-07-31 23:59:59")));
+        request.setAge(29);
+        request.setWage(1200000);
+        request.setInflation(5.5);
+
+        // Reference: the remanents of valid transactions summed in input order, as before prefix sums
+        List<ValidTransaction> valid = transactionService.filter(request).getValid();
+        double[] expected = new double[request.getK().size()];
+        for (ValidTransaction tx : valid) {
+            for (int j = 0; j < expected.length; j++) {
+                KPeriod k = request.getK().get(j);
+                if (tx.getDate().compareTo(k.getStart()) >= 0 && tx.getDate().compareTo(k.getEnd()) <= 0) {
+                    expected[j] += tx.getRemanent();
+                }
+            }
+        }
+
+        ReturnsResponse returns = returnsService.calculateNPS(request);
+        LedgerService ledgers = new LedgerService(new RuleSetRegistry(10000), returnsService, 10000, "", 64 << 20, 300);
+        request.setExpenses(expenses.subList(0, 1000));
+        ledgers.open("user-1", request);
+        for (int from = 1000; from < expenses.size(); from += 333) {
+            ledgers.append("user-1", TransactionBatch.of(expenses.subList(from, Math.min(from + 333, expenses.size()))));
+        }
+        List<KPeriodTotal> totals = ledgers.summary("user-1").getSavingsByDates();
+        for (int j = 0; j < expected.length; j++) {
+            double cents = Math.round(expected[j] * 100.0) / 100.0;
+            assertNotEquals(Math.rint(cents), cents);
+            assertEquals(cents, returns.getSavingsByDates().get(j).getAmount(), "k " + j);
+            assertEquals(cents, totals.get(j).getAmount(), "k " + j);
+        }
+    }
+
+    @Test
+    @DisplayName("Ledger: journal recovery after snapshot, compaction and a crash")
+    void testLedgerJournalRecovery(@TempDir Path dir) throws Exception {
+        FilterRequest open = new FilterRequest();
+        open.setP(List.of(new PPeriod("2023-10-01 00:00:00", "2023-12-31 23:59:59", 30)));
+        open.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59"),
+                new KPeriod("2023-06-01 00:00:00", "2023-11-30 23:59:59")));
+        open.setAge(29);
+        open.setWage(50000);
+        open.setInflation(5.5);
+
+        LedgerService first = journaledLedgers(dir);
+        first.open("a", open);
+        first.open("b", open);
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 1);
+        for (int day = 0; day < 200; day++) {
+            String date = start.plusDays(day).toString().replace('T', ' ');
+            first.append(day % 2 == 0 ? "a" : "b", TransactionBatch.of(List.of(new Expense(date, 100 + day))));
+        }
+        first.remove("b");
+        long segmentsBefore = Files.list(dir).filter(f -> f.toString().endsWith(".seg")).count();
+        first.snapshot();
+        long segmentsAfter = Files.list(dir).filter(f -> f.toString().endsWith(".seg")).count();
+        assertTrue(segmentsAfter < segmentsBefore);
+        first.append("a", TransactionBatch.of(List.of(new Expense("2023-11-11 11:11:11", 1234.5))));
+        first.open("c", open);
+        LedgerResponse expected = first.summary("a");
+
+        // No shutdown: recover from the snapshot plus the journal tail, as after a crash
+        LedgerService second = journaledLedgers(dir);
+        LedgerResponse actual = second.summary("a");
+        assertEquals(expected.getTransactionCount(), actual.getTransactionCount());
+        assertEquals(expected.getTotalCeiling(), actual.getTotalCeiling(), 1e-9);
+        for (int j = 0; j < 2; j++) {
+            assertEquals(expected.getSavingsByDates().get(j).getAmount(),
+                    actual.getSavingsByDates().get(j).getAmount(), 1e-9);
+        }
+        assertEquals(0, second.summary("c").getTransactionCount());
+        assertThrows(NoSuchElementException.class, () -> second.summary("b"));
+        second.shutdown();
+
+        // The shutdown left a compact catalog: recovery keeps it and appends to it
+        Path catalog = dir.resolve("ledgers.log");
+        List<String> compact = Files.readAllLines(catalog);
+        LedgerService third = journaledLedgers(dir);
+        assertEquals(expected.getTransactionCount(), third.summary("a").getTransactionCount());
+        assertEquals(compact, Files.readAllLines(catalog));
+        third.open("d", open);
+        assertEquals(0, journaledLedgers(dir).summary("d").getTransactionCount());
+    }
+
+    private LedgerService journaledLedgers(Path dir) throws IOException {
+        LedgerService ledgers = new LedgerService(new RuleSetRegistry(10000), returnsService, 10000, dir.toString(),
+                24 * 16, 0);
+        ledgers.recover();
+        return ledgers;
+    }
+
+    @Test
+    @DisplayName("Batch: results in input order, a bad entry fails alone")
+    void testBatchReturns() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        BatchReturnsService batch = new BatchReturnsService(returnsService, new RuleSetRegistry(10000), mapper, metrics);
+        try {
+            String k = "\"k\": [{\"start\": \"2023-01-01 00:00:00\", \"end\": \"2023-12-31 23:59:59\"}]";
+            String ndjson = "{\"age\": 29, \"wage\": 50000, \"inflation\": 5.5, " + k
+                    + ", \"transactions\": [{\"date\": \"2023-02-28 15:49:20\", \"amount\": 375}]}\n"
+                    + "{\"ruleSetId\": \"missing\"}\n"
+                    + "{\"transactions\": 7}\n"
+                    + "{\"ruleSetId\": \"missing\", " + k + "}\n";
+            List<BatchReturnsResult> results = new ArrayList<>();
+            long count = batch.calculateStream(mapper.getFactory().createParser(ndjson),
+                    BatchReturnsService.Instrument.NPS, results::add);
+
+            assertEquals(4, count);
+            assertEquals(List.of(0, 1, 2, 3), results.stream().map(BatchReturnsResult::getIndex).toList());
+            assertEquals(200, results.get(0).getStatus());
+            assertEquals(25.0, results.get(0).getReturns().getSavingsByDates().get(0).getAmount());
+            assertEquals(404, results.get(1).getStatus());
+            assertEquals(400, results.get(2).getStatus());
+            assertEquals("Invalid request body", results.get(2).getError());
+            assertEquals(400, results.get(3).getStatus());
+
+            FilterRequest req = new FilterRequest();
+            req.setExpenses(List.of(new Expense("2023-02-28 15:49:20", 375)));
+            req.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+            List<BatchReturnsResult> compared = batch.calculate(List.of(req, req, req),
+                    BatchReturnsService.Instrument.COMPARE);
+            assertEquals(3, compared.size());
+            assertEquals(2, compared.get(2).getIndex());
+            assertNotNull(compared.get(2).getComparison().getIndex());
+        } finally {
+            batch.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Jobs: progress through every stage, direct-call result, full queue refused")
+    void testJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TransactionService blocking = new TransactionService(metrics) {
+            @Override
+            public FilterResponse filter(FilterRequest request, RuleSet ruleSet, StageListener progress) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.filter(request, ruleSet, progress);
+            }
+        };
+        RuleSetRegistry registry = new RuleSetRegistry(10000);
+        JobService jobs = new JobService(blocking, returnsService, registry, 1, 1, 600, 1000);
+        try {
+            FilterRequest req = new FilterRequest();
+            req.setExpenses(List.of(new Expense("2023-02-28 15:49:20", 375), new Expense("2023-10-12 20:15:30", 250)));
+            req.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+            req.setAge(29);
+            req.setWage(50000);
+            req.setInflation(5.5);
+
+            // The filter job holds the only worker, the nps job fills the queue
+            JobStatus filter = jobs.submit(req, "filter");
+            JobStatus nps = jobs.submit(req, "nps");
+            assertEquals("queued", nps.getState());
+            RetryLaterException full = assertThrows(RetryLaterException.class, () -> jobs.submit(req, "index"));
+            assertTrue(full.getRetryAfterSeconds() >= 1);
+            assertThrows(IllegalArgumentException.class, () -> jobs.submit(req, "sweep"));
+
+            List<JobStatus> seen = new CopyOnWriteArrayList<>();
+            CountDownLatch finished = new CountDownLatch(1);
+            jobs.watch(nps.getId(), status -> {
+                seen.add(status);
+                if (status.getFinishedAt() != null) {
+                    finished.countDown();
+                }
+            });
+            assertEquals(0.0, jobs.status(nps.getId()).getProgress());
+            assertThrows(IllegalStateException.class, () -> jobs.result(nps.getId()));
+
+            release.countDown();
+            assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+            assertEquals("queued", seen.get(0).getState());
+            assertEquals("succeeded", seen.get(seen.size() - 1).getState());
+            assertEquals(List.of("validate", "dedup", "q", "p", "k", "returns"), seen.stream()
+                    .filter(status -> "running".equals(status.getState())).map(JobStatus::getStage)
+                    .filter(Objects::nonNull).toList());
+            for (int i = 1; i < seen.size(); i++) {
+                assertTrue(seen.get(i).getProgress() >= seen.get(i - 1).getProgress());
+            }
+            assertEquals(1.0, seen.get(seen.size() - 1).getProgress());
+            assertNotNull(seen.get(seen.size() - 1).getExpiresAt());
+
+            ReturnsResponse direct = returnsService.calculateNPS(req, registry.resolve(req));
+            ReturnsResponse queued = (ReturnsResponse) jobs.result(nps.getId());
+            assertEquals(direct.getSavingsByDates().get(0).getProfit(), queued.getSavingsByDates().get(0).getProfit());
+            assertEquals(75.0, queued.getSavingsByDates().get(0).getAmount());
+            assertInstanceOf(FilterResponse.class, jobs.result(filter.getId()));
+
+            jobs.cancel(nps.getId());
+            assertThrows(NoSuchElementException.class, () -> jobs.status(nps.getId()));
+        } finally {
+            release.countDown();
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Result cache: canonical keys, hits skip the writer, ETag matching, TTL and size eviction")
+    void testResultCache() throws Exception {
+        FilterRequest req = new FilterRequest();
+        req.setExpenses(List.of(new Expense("2023-02-28 15:49:20", 375), new Expense(null, 250)));
+        req.setK(List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")));
+        req.setAge(29);
+        RuleSet ruleSet = RuleSet.compile(null, null, req.getK());
+        String key = ResultCache.key("nps", "application/json", req, ruleSet);
+
+        // Same rows bound another way, and the same periods compiled separately: same key
+        FilterRequest same = new ObjectMapper().readValue(
+                "{\"age\":29,\"transactions\":[{\"amount\":375.0,\"date\":\"2023-02-28 15:49:20\"},"
+                        + "{\"date\":null,\"amount\":250}]}", FilterRequest.class);
+        assertEquals(key, ResultCache.key("nps", "application/json", same,
+                RuleSet.compile(null, null, List.of(new KPeriod("2023-01-01 00:00:00", "2023-12-31 23:59:59")))));
+        assertNotEquals(key, ResultCache.key("index", "application/json", req, ruleSet));
+        assertNotEquals(key, ResultCache.key("nps", "application/cbor", req, ruleSet));
+        assertNotEquals(key, ResultCache.key("nps", "application/json", req, RuleSet.empty()));
+        same.setAge(30);
+        assertNotEquals(key, ResultCache.key("nps", "application/json", same, ruleSet));
+        FilterRequest moved = new FilterRequest();
+        moved.setExpenses(List.of(new Expense("2023-02-28 15:49:20", 250), new Expense(null, 375)));
+        moved.setAge(29);
+        assertNotEquals(key, ResultCache.key("nps", "application/json", moved, ruleSet));
+
+        // 32 bytes: room for the first entries, then evictions below
+        SimpleMeterRegistry meters =
+                new SimpleMeterRegistry();
+        ResultCache cache = new ResultCache(meters, true, 32, 10000, 300);
+        AtomicInteger writes = new AtomicInteger();
+        ResultCache.Entry first = cache.get(key, () -> {
+            writes.incrementAndGet();
+            return "{\"ok\":1}".getBytes();
+        });
+        ResultCache.Entry second = cache.get(key, () -> {
+            writes.incrementAndGet();
+            return "{\"ok\":2}".getBytes();
+        });
+        assertEquals(1, writes.get());
+        assertSame(first.body(), second.body());
+        assertEquals(1.0, meters.get("challenge.cache.hits").counter().count());
+        assertEquals(1.0, meters.get("challenge.cache.misses").counter().count());
+        assertEquals(8.0, meters.get("challenge.cache.size").gauge().value());
+
+        String etag = first.etag();
+        assertTrue(ResultCache.matches(etag, etag));
+        assertTrue(ResultCache.matches("\"other\", W/" + etag, etag));
+        assertTrue(ResultCache.matches("*", etag));
+        assertFalse(ResultCache.matches("\"other\"", etag));
+        assertFalse(ResultCache.matches(null, etag));
+        assertEquals(etag, cache.get("another-key", () -> "{\"ok\":1}".getBytes()).etag());
+
+        // A failed write stores nothing
+        assertThrows(IllegalArgumentException.class, () -> cache.get("failing", () -> {
+            throw new IllegalArgumentException("bad request");
+        }));
+        assertEquals("{}", new String(cache.get("failing", () -> "{}".getBytes()).body()));
+
+        // Beyond max-bytes the least recently used entries go first: 18 bytes held, 32 allowed
+        assertSame(first.body(), cache.get(key, () -> new byte[0]).body());
+        cache.get("eight-a", () -> new byte[8]);
+        cache.get("eight-b", () -> new byte[8]);
+        assertEquals(26, cache.bytes());
+        assertEquals(1.0, meters.get("challenge.cache.evictions").tag("reason", "size").counter().count());
+        assertSame(first.body(), cache.get(key, () -> new byte[0]).body());
+        assertEquals(3, cache.get("another-key", () -> new byte[3]).body().length);
+        assertEquals(9, cache.get("too-large", () -> new byte[9]).body().length);
+        assertEquals(29, cache.bytes());
+
+        // Expired entries are recomputed
+        SimpleMeterRegistry expiring = new SimpleMeterRegistry();
+        ResultCache shortLived = new ResultCache(expiring, true, 64 << 20, 10000, 0);
+        shortLived.get("short-lived", () -> new byte[1]);
+        assertEquals(2, shortLived.get("short-lived", () -> new byte[2]).body().length);
+        assertTrue(expiring.get("challenge.cache.evictions").tag("reason", "expired").counter().count() >= 1);
+
+        // Each store drops the expired entries ahead of it, without a full scan
+        SimpleMeterRegistry sweeping = new SimpleMeterRegistry();
+        ResultCache sweeper = new ResultCache(sweeping, true, 64 << 20, 10000, 0);
+        for (String name : List.of("a", "b", "c")) {
+            sweeper.get(name, () -> new byte[1]);
+        }
+        assertEquals(1, sweeper.entries());
+        assertEquals(1, sweeper.bytes());
+        assertEquals(2.0, sweeping.get("challenge.cache.evictions").tag("reason", "expired").counter().count());
+    }
+
+    @Test
+    @DisplayName("Result cache: identical requests in flight share one computation and count as coalesced")
+    void testResultCacheCoalescing() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        ResultCache cache = new ResultCache(meters, true, 64 << 20, 10000, 300);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger writes = new AtomicInteger();
+        ResultCache.Writer slow = () -> {
+            writes.incrementAndGet();
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return "{}".getBytes();
+        };
+        List<ResultCache.Entry> results = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    results.add(cache.get("slow", slow));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+            if (i == 0) {
+                assertTrue(writing.await(5, TimeUnit.SECONDS));
+            }
+        }
+        while (meters.get("challenge.cache.coalesced").counter().count() < 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertEquals(1, writes.get());
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(entry -> entry == results.get(0)));
+        assertEquals(1.0, meters.get("challenge.cache.misses").counter().count());
+        assertEquals(2.0, meters.get("challenge.cache.coalesced").counter().count());
+        assertEquals(0.0, meters.get("challenge.cache.hits").counter().count());
+    }
+
+    @Nested
+    @SpringBootTest
+    @AutoConfigureMockMvc
+    class CachedEndpoints {
+
+        private static final String NPS = "/blackrock/challenge/v1/returns:nps";
+
+        @Autowired
+        private MockMvc mvc;
+
+        @Autowired
+        private MeterRegistry registry;
+
+        @Test
+        @DisplayName("Result cache: endpoints send an ETag per format, 304 on If-None-Match, 406 for other formats")
+        void testETagNotModified() throws Exception {
+            String body = "{\"age\": 29, \"wage\": 50000, \"inflation\": 5.5, \"k\": [{\"start\": "
+                    + "\"2023-01-01 00:00:00\", \"end\": \"2023-12-31 23:59:59\"}], \"transactions\": ["
+                    + "{\"date\": \"2023-02-28 15:49:20\", \"amount\": 375}]}";
+            MockHttpServletResponse first = mvc.perform(post(NPS).contentType(MediaType.APPLICATION_JSON)
+                    .content(body)).andReturn().getResponse();
+            assertEquals(200, first.getStatus());
+            String etag = first.getHeader(HttpHeaders.ETAG);
+            assertNotNull(etag);
+            assertTrue(first.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+
+            MockHttpServletResponse unchanged = mvc.perform(post(NPS).contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"stale\", " + etag).content(body)).andReturn().getResponse();
+            assertEquals(304, unchanged.getStatus());
+            assertEquals(etag, unchanged.getHeader(HttpHeaders.ETAG));
+            assertEquals(0, unchanged.getContentAsByteArray().length);
+
+            // Same request, other format: a different representation with its own tag
+            MockHttpServletResponse smile = mvc.perform(post(NPS).contentType(MediaType.APPLICATION_JSON)
+                    .accept(BinaryFormats.SMILE).header(HttpHeaders.IF_NONE_MATCH, etag).content(body))
+                    .andReturn().getResponse();
+            assertEquals(200, smile.getStatus());
+            assertEquals(BinaryFormats.SMILE, smile.getContentType());
+            assertNotEquals(etag, smile.getHeader(HttpHeaders.ETAG));
+
+            assertEquals(200, mvc.perform(post(NPS).contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.IF_NONE_MATCH, "\"stale\"").content(body)).andReturn().getResponse()
+                    .getStatus());
+            assertEquals(406, mvc.perform(post(NPS).contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_HTML).content(body)).andReturn().getResponse().getStatus());
+        }
+
+        @Test
+        @DisplayName("Parse timing: marked handlers record the parse stage, a job under the operation it queues")
+        void testParseTimingMarkedHandlers() throws Exception {
+            String body = "{\"wage\": 50000, \"transactions\": [{\"date\": \"2023-02-28 15:49:20\", \"amount\": 375}]}";
+            long filter = parses(PipelineMetrics.FILTER);
+            long returns = parses(PipelineMetrics.RETURNS);
+
+            mvc.perform(post("/blackrock/challenge/v1/transactions:filter").contentType(MediaType.APPLICATION_JSON)
+                    .content(body));
+            mvc.perform(post("/blackrock/challenge/v1/jobs").param("operation", "filter")
+                    .contentType(MediaType.APPLICATION_JSON).content(body));
+            assertEquals(filter + 2, parses(PipelineMetrics.FILTER));
+            assertEquals(returns, parses(PipelineMetrics.RETURNS));
+
+            mvc.perform(post(NPS).contentType(MediaType.APPLICATION_JSON).content(body));
+            mvc.perform(post("/blackrock/challenge/v1/jobs").param("operation", "index")
+                    .contentType(MediaType.APPLICATION_JSON).content(body));
+            mvc.perform(post("/blackrock/challenge/v1/transactions:validator").contentType(MediaType.APPLICATION_JSON)
+                    .content(body));
+            assertEquals(filter + 2, parses(PipelineMetrics.FILTER));
+            assertEquals(returns + 2, parses(PipelineMetrics.RETURNS));
+        }
+
+        private long parses(String operation) {
+            return registry.get("challenge.pipeline.stage").tag("operation", operation).tag("stage", "parse")
+                    .timer().count();
+        }
+    }
+
     // ========== TAX TESTS ==========
 
     @Test
@@ -267,10 +1450,154 @@ class SavingsCalculatorTest {
         assertEquals(270000.0, taxService.calculateTax(2000000));
     }
 
+    @Test
+    @DisplayName("Tax: slab table matches the slab-by-slab chain, bulk and custom regimes")
+    void testTaxSlabTable() {
+        Random random = new Random(3);
+        double[] incomes = new double[10_000];
+        for (int i = 0; i < incomes.length; i++) {
+            incomes[i] = i < 6 ? new double[] { -1, 0, 700000, 1000000, 1200000, 1500000 }[i]
+                    : random.nextDouble() * 3_000_000;
+        }
+        double[] bulk = taxService.calculateTax(incomes);
+        for (int i = 0; i < incomes.length; i++) {
+            double income = incomes[i];
+            double expected = 0;
+            if (income > 1500000) { expected += (income - 1500000) * 0.30; income = 1500000; }
+            if (income > 1200000) { expected += (income - 1200000) * 0.20; income = 1200000; }
+            if (income > 1000000) { expected += (income - 1000000) * 0.15; income = 1000000; }
+            if (income > 700000) { expected += (income - 700000) * 0.10; }
+            assertEquals(expected, bulk[i], 1e-6, "income " + incomes[i]);
+            assertEquals(bulk[i], taxService.calculateTax(incomes[i]));
+        }
+
+        double[] benefits = taxService.calculateNPSTaxBenefit(new double[] { 0, 50000, 300000 }, 1500000);
+        assertEquals(0.0, benefits[0]);
+        assertEquals(taxService.calculateNPSTaxBenefit(50000, 1500000), benefits[1]);
+        assertEquals(30000.0, benefits[2]);
+
+        TaxProperties properties = new TaxProperties();
+        properties.setRegime("flat");
+        properties.getRegimes().put("flat", List.of(new TaxProperties.Slab(0, 0), new TaxProperties.Slab(100, 0.5)));
+        TaxService flat = new TaxService(properties);
+        assertEquals(50.0, flat.calculateTax(200));
+        assertEquals(0.0, flat.regime(TaxService.DEFAULT_REGIME).tax(700000));
+        assertThrows(IllegalArgumentException.class, () -> TaxSlabTable.of(new double[] { 0, 0 }, new double[] { 0, 1 }));
+    }
+
     @Test
     @DisplayName("Tax: NPS benefit for 15L wage > 0")
     void testNPSTaxBenefit() {
         double benefit = taxService.calculateNPSTaxBenefit(100000, 1500000);
         assertTrue(benefit > 0);
     }
+
+    // ========== PERFORMANCE TESTS ==========
+
+    @Test
+    @DisplayName("Performance: uptime format and JVM telemetry")
+    void testPerformanceTelemetry() {
+        PerformanceService performanceService = new PerformanceService();
+        PerformanceResponse perf = performanceService.getPerformance();
+        assertTrue(perf.getTime().matches("1970-01-01 \\d{2,}:\\d{2}:\\d{2}\\.\\d{3}"), perf.getTime());
+        assertTrue(perf.getMemory().matches("\\d+\\.\\d{2}"), perf.getMemory());
+
+        JvmTelemetryResponse jvm = performanceService.getJvmTelemetry();
+        assertFalse(jvm.getGc().isEmpty());
+        assertTrue(jvm.getMemory().getHeap().getUsed() > 0);
+        assertTrue(jvm.getMemory().getPools().stream().anyMatch(pool -> "heap".equals(pool.getType())));
+        assertTrue(jvm.getAllocation().getTotalBytes() > 0);
+        assertTrue(jvm.getThreads().getLive() > 0);
+        assertTrue(jvm.getThreads().getPeak() >= jvm.getThreads().getLive());
+        assertTrue(jvm.getThreads().getDaemon() <= jvm.getThreads().getLive());
+    }
+
+    @Test
+    @DisplayName("Performance: gradient limit admits by weight, grows while latency holds, sheds when it climbs")
+    void testGradientLimit() {
+        long mb = 1 << 20;
+        GradientLimit limit = new GradientLimit(8 * mb, mb, 64 * mb, 64 << 10, 2.0);
+        assertEquals(64 << 10, limit.weight(10));
+        assertTrue(limit.tryAcquire(6 * mb));
+        assertFalse(limit.tryAcquire(4 * mb));
+        assertTrue(limit.tryAcquire(2 * mb));
+        limit.release(6 * mb, 60_000_000, true);
+        limit.release(2 * mb, 20_000_000, true);
+        // Nothing in flight: a body over the limit still gets through, alone
+        assertTrue(limit.tryAcquire(100 * mb));
+        assertFalse(limit.tryAcquire(64 << 10));
+        limit.release(100 * mb, 1_000_000_000, true);
+
+        // Limit in use at a steady 10 ms per MB, small and large bodies alike: grows to the ceiling
+        for (int i = 0; i < 400; i++) {
+            long weight = (i % 2 == 0 ? 1 : 4) * mb;
+            long fill = limit.limit() - weight;
+            assertTrue(limit.tryAcquire(fill));
+            assertTrue(limit.tryAcquire(weight));
+            limit.release(weight, weight / mb * 10_000_000, true);
+            limit.release(fill, 0, false);
+        }
+        assertEquals(64 * mb, limit.limit());
+
+        // Latency per MB jumps fivefold: the limit backs off to the floor
+        for (int i = 0; i < 500; i++) {
+            long fill = limit.limit() - mb;
+            limit.tryAcquire(fill);
+            limit.tryAcquire(mb);
+            limit.release(mb, 50_000_000, true);
+            limit.release(fill, 0, false);
+            if (i == 99) {
+                assertEquals(mb, limit.limit());
+            }
+        }
+        // ...until the slower level has lasted long enough to become the norm
+        assertTrue(limit.limit() > 8 * mb, Long.toString(limit.limit()));
+        assertEquals(1, limit.retryAfterSeconds());
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    @DisplayName("Performance: limiter weighs bodies by length, unknown lengths pessimistically, and refuses with 503")
+    void testConcurrencyLimitInterceptor() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConcurrencyLimitInterceptor interceptor = new ConcurrencyLimitInterceptor(registry);
+        interceptor.init();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Reads are never limited
+        assertTrue(interceptor.preHandle(new MockHttpServletRequest("GET", "/blackrock/challenge/v1/performance"),
+                response, null));
+        assertEquals(0, registry.get("challenge.limiter.inflight").gauge().value());
+
+        // 12 MB in flight under the 16 MB initial limit: another 8 MB does not fit
+        MockHttpServletRequest large = postWithBody(12 << 20);
+        assertTrue(interceptor.preHandle(large, response, null));
+        assertEquals(12 << 20, registry.get("challenge.limiter.inflight").gauge().value());
+        RetryLaterException refused = assertThrows(RetryLaterException.class,
+                () -> interceptor.preHandle(postWithBody(8 << 20), response, null));
+        assertEquals(1, registry.get("challenge.limiter.rejected").counter().count());
+
+        ResponseEntity<Map<String, Object>> answer = new GlobalExceptionHandler().handleOverload(refused);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, answer.getStatusCode());
+        assertEquals("1", answer.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Service unavailable", answer.getBody().get("error"));
+
+        interceptor.afterCompletion(large, response, null, null);
+        assertEquals(0, registry.get("challenge.limiter.inflight").gauge().value());
+
+        // No Content-Length (chunked upload): counted as the whole initial limit, so it runs alone
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/blackrock/challenge/v1/returns:batch");
+        assertTrue(interceptor.preHandle(chunked, response, null));
+        assertEquals(16 << 20, registry.get("challenge.limiter.inflight").gauge().value());
+        assertThrows(RetryLaterException.class, () -> interceptor.preHandle(postWithBody(1024), response, null));
+        interceptor.afterCompletion(chunked, response, null, null);
+        assertEquals(0, registry.get("challenge.limiter.inflight").gauge().value());
+        assertEquals(2, registry.get("challenge.limiter.rejected").counter().count());
+    }
+
+    private static MockHttpServletRequest postWithBody(int bytes) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/blackrock/challenge/v1/returns:nps");
+        request.setContent(new byte[bytes]);
+        return request;
+    }
 }